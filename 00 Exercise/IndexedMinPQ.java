@@ -3,9 +3,15 @@ import edu.princeton.cs.algs4.StdOut;
 import java.util.ArrayList;
 
 
-public class IndexedMinPQ<Key extends Comparable<Key>, Value extends Comparable<Value>> {
+public class IndexedMinPQ<Key extends Comparable<Key>, Value extends Comparable<Value>>
+        implements MinPriorityQueue<Key, Value> {
+    private static final int DEFAULT_ARITY = 2;
+
     ArrayList<Node> nodes;
 
+    // number of children per node, children of a node are stored in one contiguous block
+    private final int arity;
+
     private class Node {
         Key key;
         Value value;
@@ -17,11 +23,11 @@ public class IndexedMinPQ<Key extends Comparable<Key>, Value extends Comparable<
     }
 
     private int parent(int index){
-        return index >> 1;
+        return (index - 2) / arity + 1;
     }
 
     private int leftChild(int index){
-        return index << 1;
+        return arity * (index - 1) + 2;
     }
 
     // compare ith element with jth element
@@ -46,7 +52,13 @@ public class IndexedMinPQ<Key extends Comparable<Key>, Value extends Comparable<
     private void sink(int k) {
         while (leftChild(k) <= size()){
             int j = leftChild(k);
-            if (j < size() && less(j + 1, j)) j++;
+
+            // pick minimum child across the block
+            int end = Math.min(j + arity - 1, size());
+            for (int c = j + 1; c <= end; c++) {
+                if (less(c, j)) j = c;
+            }
+
             if (less(k, j)) break;
             swap(k, j);
             k = j;
@@ -54,19 +66,78 @@ public class IndexedMinPQ<Key extends Comparable<Key>, Value extends Comparable<
     }
 
     IndexedMinPQ() {
+        this(DEFAULT_ARITY);
+    }
+
+    IndexedMinPQ(int arity) {
+        if (arity < 2) throw new IllegalArgumentException("arity must be at least 2");
+
+        this.arity = arity;
         nodes = new ArrayList<>();
         nodes.add(null);
     }
 
+    // build from parallel arrays with bottom-up heapify, O(n) instead of n swims
+    IndexedMinPQ(Key[] keys, Value[] values) {
+        this(keys, values, DEFAULT_ARITY);
+    }
+
+    IndexedMinPQ(Key[] keys, Value[] values, int arity) {
+        this(arity);
+        insertAll(keys, values);
+    }
+
+    // restore heap order for every node from the last parent up to the root
+    private void heapify() {
+        for (int k = parent(size()); k >= 1; k--) {
+            sink(k);
+        }
+    }
+
     public int size() {
         return nodes.size() - 1;
     }
 
+    // smallest key without removing it
+    public Key minKey() {
+        if (size() == 0) throw new IllegalStateException();
+        return nodes.get(1).key;
+    }
+
     public void insert(Key key, Value value) {
         nodes.add(new Node(key, value));
         swim(size());
     }
 
+    // append all entries then heapify, O(n + m) for m existing entries. heapify only wins when it builds
+    // a large part of the heap from keys that would swim far: a random key swims O(1) levels on average,
+    // so n inserts of random keys are about as fast, and a few entries added to a large heap are cheaper
+    // one insert at a time than a heapify that sinks every parent again
+    public void insertAll(Key[] keys, Value[] values) {
+        if (keys == null || values == null) throw new IllegalArgumentException("argument is null");
+        if (keys.length != values.length) throw new IllegalArgumentException("keys and values differ in length");
+
+        nodes.ensureCapacity(nodes.size() + keys.length);
+        for (int i = 0; i < keys.length; i++) {
+            nodes.add(new Node(keys[i], values[i]));
+        }
+
+        heapify();
+    }
+
+    // pop up to k minimum values into out[0..], return number of values popped
+    public int popAll(int k, Value[] out) {
+        if (out == null) throw new IllegalArgumentException("out is null");
+        if (k < 0 || k > out.length) throw new IllegalArgumentException("k out of bounds");
+
+        int count = Math.min(k, size());
+        for (int i = 0; i < count; i++) {
+            out[i] = pop();
+        }
+
+        return count;
+    }
+
     public Value pop(){
         if (size() == 0) throw new IllegalStateException();
         Node node = nodes.get(1);
@@ -0,0 +1,228 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.NoSuchElementException;
+
+// IntIndexedMinPQ specialized for double keys: parallel primitive arrays, no Node objects,
+// no boxing and no allocation after construction
+public class IntDoubleIndexedMinPQ {
+    private static final int DEFAULT_ARITY = 2;
+
+    private final int capacity;
+
+    // number of children per node, children of a node are stored in one contiguous block
+    // of heap[] so a wider heap is shallower and scans a block of adjacent slots per level
+    private final int arity;
+    private int n;
+
+    // heap position -> handle (1-based heap layout)
+    private final int[] heap;
+
+    // handle -> heap position, -1 if handle is not in queue
+    private final int[] pos;
+
+    // handle -> key
+    private final double[] keys;
+
+    private int parent(int index) {
+        return (index - 2) / arity + 1;
+    }
+
+    private int leftChild(int index) {
+        return arity * (index - 1) + 2;
+    }
+
+    private void validateIndex(int i) {
+        if (i < 0 || i >= capacity) {
+            throw new IllegalArgumentException("index " + i + " is not between 0 and " + (capacity - 1));
+        }
+    }
+
+    private void validateContains(int i) {
+        validateIndex(i);
+        if (pos[i] == -1) throw new NoSuchElementException("index " + i + " is not in the priority queue");
+    }
+
+    // compare ith element with jth element
+    private boolean less(int i, int j) {
+        return keys[heap[i]] < keys[heap[j]];
+    }
+
+    // swap ith element with jth element, keeping position map in sync
+    private void swap(int i, int j) {
+        int temp = heap[i];
+        heap[i] = heap[j];
+        heap[j] = temp;
+        pos[heap[i]] = i;
+        pos[heap[j]] = j;
+    }
+
+    private void swim(int k) {
+        while (k > 1 && less(k, parent(k))) {
+            swap(k, parent(k));
+            k = parent(k);
+        }
+    }
+
+    private void sink(int k) {
+        while (leftChild(k) <= n) {
+            int j = leftChild(k);
+
+            // pick minimum child across the block
+            int end = Math.min(j + arity - 1, n);
+            for (int c = j + 1; c <= end; c++) {
+                if (less(c, j)) j = c;
+            }
+
+            if (!less(j, k)) break;
+            swap(k, j);
+            k = j;
+        }
+    }
+
+    public IntDoubleIndexedMinPQ(int capacity) {
+        this(capacity, DEFAULT_ARITY);
+    }
+
+    public IntDoubleIndexedMinPQ(int capacity, int arity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity is negative");
+        if (arity < 2) throw new IllegalArgumentException("arity must be at least 2");
+
+        this.capacity = capacity;
+        this.arity = arity;
+        this.n = 0;
+        this.heap = new int[capacity + 1];
+        this.pos = new int[capacity];
+        this.keys = new double[capacity];
+
+        for (int i = 0; i < capacity; i++) {
+            pos[i] = -1;
+        }
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean contains(int i) {
+        validateIndex(i);
+        return pos[i] != -1;
+    }
+
+    public void insert(int i, double key) {
+        validateIndex(i);
+        if (Double.isNaN(key)) throw new IllegalArgumentException("key is NaN");
+        if (pos[i] != -1) throw new IllegalArgumentException("index " + i + " is already in the priority queue");
+
+        n++;
+        pos[i] = n;
+        heap[n] = i;
+        keys[i] = key;
+        swim(n);
+    }
+
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("priority queue underflow");
+        return heap[1];
+    }
+
+    public double minKey() {
+        if (n == 0) throw new NoSuchElementException("priority queue underflow");
+        return keys[heap[1]];
+    }
+
+    public double keyOf(int i) {
+        validateContains(i);
+        return keys[i];
+    }
+
+    // remove the minimum entry and return its handle
+    public int pop() {
+        if (n == 0) throw new NoSuchElementException("priority queue underflow");
+        int min = heap[1];
+        swap(1, n--);
+        sink(1);
+        pos[min] = -1;
+        return min;
+    }
+
+    public void changeKey(int i, double key) {
+        validateContains(i);
+        if (Double.isNaN(key)) throw new IllegalArgumentException("key is NaN");
+
+        double old = keys[i];
+        keys[i] = key;
+        if (key < old) swim(pos[i]);
+        else if (key > old) sink(pos[i]);
+    }
+
+    public void decreaseKey(int i, double key) {
+        validateContains(i);
+        if (Double.isNaN(key)) throw new IllegalArgumentException("key is NaN");
+        if (key > keys[i]) throw new IllegalArgumentException("key would increase");
+
+        keys[i] = key;
+        swim(pos[i]);
+    }
+
+    public void increaseKey(int i, double key) {
+        validateContains(i);
+        if (Double.isNaN(key)) throw new IllegalArgumentException("key is NaN");
+        if (key < keys[i]) throw new IllegalArgumentException("key would decrease");
+
+        keys[i] = key;
+        sink(pos[i]);
+    }
+
+    public void delete(int i) {
+        validateContains(i);
+        int k = pos[i];
+        swap(k, n--);
+
+        // the moved element may need to go either way
+        if (k <= n) {
+            swim(k);
+            sink(k);
+        }
+
+        pos[i] = -1;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+
+        for (int i = 1; i <= n; i++) {
+            s.append(keys[heap[i]]);
+            s.append(" ");
+        }
+
+        if (s.length() > 0) s.deleteCharAt(s.length() - 1);
+        return s.toString();
+    }
+
+    public static void main(String[] args) {
+        IntDoubleIndexedMinPQ queue = new IntDoubleIndexedMinPQ(8);
+
+        double[] keys = {0.5, 0.4, 0.2, 0.7, 0.1, 0.6, 0.3, 0.8};
+        for (int i = 0; i < keys.length; i++) {
+            queue.insert(i, keys[i]);
+        }
+        StdOut.println(queue);
+
+        queue.increaseKey(4, 0.9);
+        StdOut.println(queue);
+
+        queue.decreaseKey(4, 0.1);
+        StdOut.println(queue);
+
+        queue.delete(2);
+        StdOut.println(queue + " (contains 2: " + queue.contains(2) + ")");
+
+        while (!queue.isEmpty()) {
+            StdOut.println(queue.minIndex() + " " + queue.minKey() + " -> " + queue.pop());
+        }
+    }
+}
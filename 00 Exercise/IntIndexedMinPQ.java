@@ -0,0 +1,218 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.NoSuchElementException;
+
+// indexed min priority queue whose entries are addressed by integer handles 0..capacity-1,
+// every operation touching a single handle runs in O(log n) thanks to the qp[] position map
+public class IntIndexedMinPQ<Key extends Comparable<Key>> {
+    private final int capacity;
+    private int n;
+
+    // heap position -> handle (1-based heap layout)
+    private final int[] pq;
+
+    // handle -> heap position, -1 if handle is not in queue
+    private final int[] qp;
+
+    // handle -> key
+    private final Key[] keys;
+
+    private int parent(int index) {
+        return index >> 1;
+    }
+
+    private int leftChild(int index) {
+        return index << 1;
+    }
+
+    private void validateIndex(int i) {
+        if (i < 0 || i >= capacity) {
+            throw new IllegalArgumentException("index " + i + " is not between 0 and " + (capacity - 1));
+        }
+    }
+
+    private void validateContains(int i) {
+        validateIndex(i);
+        if (qp[i] == -1) throw new NoSuchElementException("index " + i + " is not in the priority queue");
+    }
+
+    // compare ith element with jth element
+    private boolean less(int i, int j) {
+        return keys[pq[i]].compareTo(keys[pq[j]]) < 0;
+    }
+
+    // swap ith element with jth element, keeping position map in sync
+    private void swap(int i, int j) {
+        int temp = pq[i];
+        pq[i] = pq[j];
+        pq[j] = temp;
+        qp[pq[i]] = i;
+        qp[pq[j]] = j;
+    }
+
+    private void swim(int k) {
+        while (k > 1 && less(k, parent(k))) {
+            swap(k, parent(k));
+            k = parent(k);
+        }
+    }
+
+    private void sink(int k) {
+        while (leftChild(k) <= n) {
+            int j = leftChild(k);
+            if (j < n && less(j + 1, j)) j++;
+            if (!less(j, k)) break;
+            swap(k, j);
+            k = j;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public IntIndexedMinPQ(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity is negative");
+
+        this.capacity = capacity;
+        this.n = 0;
+        this.pq = new int[capacity + 1];
+        this.qp = new int[capacity];
+        this.keys = (Key[]) new Comparable[capacity];
+
+        for (int i = 0; i < capacity; i++) {
+            qp[i] = -1;
+        }
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean contains(int i) {
+        validateIndex(i);
+        return qp[i] != -1;
+    }
+
+    public void insert(int i, Key key) {
+        validateIndex(i);
+        if (key == null) throw new IllegalArgumentException("key is null");
+        if (qp[i] != -1) throw new IllegalArgumentException("index " + i + " is already in the priority queue");
+
+        n++;
+        qp[i] = n;
+        pq[n] = i;
+        keys[i] = key;
+        swim(n);
+    }
+
+    public int minIndex() {
+        if (n == 0) throw new NoSuchElementException("priority queue underflow");
+        return pq[1];
+    }
+
+    public Key minKey() {
+        if (n == 0) throw new NoSuchElementException("priority queue underflow");
+        return keys[pq[1]];
+    }
+
+    public Key keyOf(int i) {
+        validateContains(i);
+        return keys[i];
+    }
+
+    // remove the minimum entry and return its handle
+    public int pop() {
+        if (n == 0) throw new NoSuchElementException("priority queue underflow");
+        int min = pq[1];
+        swap(1, n--);
+        sink(1);
+        qp[min] = -1;
+        keys[min] = null;
+        pq[n + 1] = -1;
+        return min;
+    }
+
+    public void changeKey(int i, Key key) {
+        validateContains(i);
+        if (key == null) throw new IllegalArgumentException("key is null");
+
+        int cmp = key.compareTo(keys[i]);
+        keys[i] = key;
+        if (cmp < 0) swim(qp[i]);
+        else if (cmp > 0) sink(qp[i]);
+    }
+
+    public void decreaseKey(int i, Key key) {
+        validateContains(i);
+        if (key == null) throw new IllegalArgumentException("key is null");
+        if (key.compareTo(keys[i]) > 0) throw new IllegalArgumentException("key would increase");
+
+        keys[i] = key;
+        swim(qp[i]);
+    }
+
+    public void increaseKey(int i, Key key) {
+        validateContains(i);
+        if (key == null) throw new IllegalArgumentException("key is null");
+        if (key.compareTo(keys[i]) < 0) throw new IllegalArgumentException("key would decrease");
+
+        keys[i] = key;
+        sink(qp[i]);
+    }
+
+    public void delete(int i) {
+        validateContains(i);
+        int k = qp[i];
+        swap(k, n--);
+
+        // the moved element may need to go either way
+        if (k <= n) {
+            swim(k);
+            sink(k);
+        }
+
+        qp[i] = -1;
+        keys[i] = null;
+        pq[n + 1] = -1;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+
+        for (int i = 1; i <= n; i++) {
+            s.append(keys[pq[i]].toString());
+            s.append(" ");
+        }
+
+        if (s.length() > 0) s.deleteCharAt(s.length() - 1);
+        return s.toString();
+    }
+
+    public static void main(String[] args) {
+        IntIndexedMinPQ<String> queue = new IntIndexedMinPQ<>(8);
+
+        String[] keys = {"p", "o", "b", "u", "a", "t", "r", "y"};
+        for (int i = 0; i < keys.length; i++) {
+            queue.insert(i, keys[i]);
+        }
+        StdOut.println(queue);
+
+        queue.increaseKey(4, "z");
+        StdOut.println(queue);
+
+        queue.decreaseKey(4, "a");
+        StdOut.println(queue);
+
+        queue.changeKey(0, "c");
+        StdOut.println(queue);
+
+        queue.delete(2);
+        StdOut.println(queue + " (contains 2: " + queue.contains(2) + ")");
+
+        while (!queue.isEmpty()) {
+            StdOut.println(queue.minIndex() + " " + queue.minKey() + " -> " + queue.pop());
+        }
+    }
+}
@@ -0,0 +1,13 @@
+// common surface of the min priority queues in this folder, so callers can swap implementations.
+// entries are identified by their value, pop on an empty queue throws IllegalStateException
+public interface MinPriorityQueue<Key extends Comparable<Key>, Value extends Comparable<Value>> {
+    int size();
+
+    void insert(Key key, Value value);
+
+    Value pop();
+
+    void decreaseKey(Key newKey, Value value);
+
+    void increaseKey(Key newKey, Value value);
+}
@@ -0,0 +1,284 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+// thread safe priority queue with relaxed ordering (MultiQueue): entries are spread over several
+// binary heaps guarded by their own lock, pop takes the better top of two random queues.
+// with a single queue it degrades to a strict queue behind one global lock
+public class MultiMinPQ<Key extends Comparable<Key>, Value extends Comparable<Value>>
+        implements MinPriorityQueue<Key, Value> {
+    // one value in one queue; queue never changes, pos is its heap slot and only changes under the queue lock
+    private static final class Entry<Key, Value> {
+        final int queue;
+        final Value value;
+        Key key;
+        int pos;
+
+        Entry(int queue, Key key, Value value) {
+            this.queue = queue;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // binary heap of entries that keeps every entry's slot up to date, so a key change starts at its slot
+    private static final class Heap<Key extends Comparable<Key>, Value> {
+        private final ArrayList<Entry<Key, Value>> entries;
+
+        Heap() {
+            entries = new ArrayList<>();
+            entries.add(null);
+        }
+
+        int size() {
+            return entries.size() - 1;
+        }
+
+        Key minKey() {
+            return entries.get(1).key;
+        }
+
+        private boolean less(int i, int j) {
+            return entries.get(i).key.compareTo(entries.get(j).key) < 0;
+        }
+
+        private void swap(int i, int j) {
+            Entry<Key, Value> temp = entries.get(i);
+            entries.set(i, entries.get(j));
+            entries.set(j, temp);
+            entries.get(i).pos = i;
+            entries.get(j).pos = j;
+        }
+
+        private void swim(int k) {
+            while (k > 1 && less(k, k / 2)) {
+                swap(k, k / 2);
+                k = k / 2;
+            }
+        }
+
+        private void sink(int k) {
+            while (2 * k <= size()) {
+                int j = 2 * k;
+                if (j < size() && less(j + 1, j)) j++;
+                if (!less(j, k)) break;
+                swap(k, j);
+                k = j;
+            }
+        }
+
+        void insert(Entry<Key, Value> entry) {
+            entry.pos = entries.size();
+            entries.add(entry);
+            swim(entry.pos);
+        }
+
+        Entry<Key, Value> pop() {
+            Entry<Key, Value> min = entries.get(1);
+            swap(1, size());
+            entries.remove(size());
+            sink(1);
+            return min;
+        }
+
+        void decreaseKey(Entry<Key, Value> entry, Key key) {
+            entry.key = key;
+            swim(entry.pos);
+        }
+
+        void increaseKey(Entry<Key, Value> entry, Key key) {
+            entry.key = key;
+            sink(entry.pos);
+        }
+    }
+
+    private final Heap<Key, Value>[] queues;
+    private final ReentrantLock[] locks;
+
+    // queue index -> its current minimum key, null if empty; only written under the queue lock
+    private final AtomicReferenceArray<Key> tops;
+
+    // value -> its entry; added and removed under the lock of the entry's queue
+    private final ConcurrentHashMap<Value, Entry<Key, Value>> location;
+    private final AtomicInteger size;
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public MultiMinPQ(int queueCount) {
+        if (queueCount < 1) throw new IllegalArgumentException("queueCount must be positive");
+
+        queues = (Heap<Key, Value>[]) new Heap[queueCount];
+        locks = new ReentrantLock[queueCount];
+        for (int i = 0; i < queueCount; i++) {
+            queues[i] = new Heap<>();
+            locks[i] = new ReentrantLock();
+        }
+
+        tops = new AtomicReferenceArray<>(queueCount);
+        location = new ConcurrentHashMap<>();
+        size = new AtomicInteger();
+    }
+
+    private int randomQueue() {
+        return ThreadLocalRandom.current().nextInt(queues.length);
+    }
+
+    // must hold locks[i]
+    private void updateTop(int i) {
+        tops.set(i, queues[i].size() == 0 ? null : queues[i].minKey());
+    }
+
+    // must hold locks[i] and queues[i] must not be empty
+    private Value popLocked(int i) {
+        Entry<Key, Value> entry = queues[i].pop();
+        location.remove(entry.value);
+        size.decrementAndGet();
+        updateTop(i);
+        return entry.value;
+    }
+
+    // fallback when both sampled queues look empty: try every queue in turn
+    private Value popAny() {
+        for (int i = 0; i < queues.length; i++) {
+            locks[i].lock();
+            try {
+                if (queues[i].size() > 0) return popLocked(i);
+            } finally {
+                locks[i].unlock();
+            }
+        }
+
+        return null;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public boolean isEmpty() {
+        return size.get() == 0;
+    }
+
+    public void insert(Key key, Value value) {
+        if (key == null || value == null) throw new IllegalArgumentException("argument is null");
+
+        while (true) {
+            int i = randomQueue();
+            if (!locks[i].tryLock()) continue;
+
+            try {
+                // claimed before it is in the heap, a key change waiting for this lock then finds it there
+                Entry<Key, Value> entry = new Entry<>(i, key, value);
+                if (location.putIfAbsent(value, entry) != null) {
+                    throw new IllegalArgumentException("value is already in the queue");
+                }
+
+                queues[i].insert(entry);
+                size.incrementAndGet();
+                updateTop(i);
+                return;
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    // remove and return a value whose key is close to the minimum
+    public Value pop() {
+        while (size.get() > 0) {
+            int i = randomQueue();
+            int j = randomQueue();
+            Key ki = tops.get(i);
+            Key kj = tops.get(j);
+
+            if (ki == null && kj == null) {
+                Value value = popAny();
+                if (value != null) return value;
+                continue;
+            }
+
+            int best = kj == null || (ki != null && ki.compareTo(kj) <= 0) ? i : j;
+            if (!locks[best].tryLock()) continue;
+
+            try {
+                if (queues[best].size() > 0) return popLocked(best);
+            } finally {
+                locks[best].unlock();
+            }
+        }
+
+        throw new IllegalStateException();
+    }
+
+    // update key of value in the queue holding it, logarithmic in that queue's size.
+    // values not in queue are ignored, as in IndexedMinPQ
+    public void decreaseKey(Key newKey, Value value) {
+        changeKey(newKey, value, true);
+    }
+
+    public void increaseKey(Key newKey, Value value) {
+        changeKey(newKey, value, false);
+    }
+
+    private void changeKey(Key newKey, Value value, boolean decrease) {
+        if (newKey == null || value == null) throw new IllegalArgumentException("argument is null");
+
+        while (true) {
+            Entry<Key, Value> entry = location.get(value);
+            if (entry == null) return;
+
+            int i = entry.queue;
+            locks[i].lock();
+            try {
+                // value may have been popped and reinserted meanwhile, as a new entry
+                if (location.get(value) != entry) continue;
+
+                if (decrease) queues[i].decreaseKey(entry, newKey);
+                else queues[i].increaseKey(entry, newKey);
+                updateTop(i);
+                return;
+            } finally {
+                locks[i].unlock();
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        MultiMinPQ<Integer, Integer> queue = new MultiMinPQ<>(4);
+        int threads = 4;
+        int perThread = 1000;
+
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int base = t * perThread;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    queue.insert(base + i, base + i);
+                }
+            });
+            workers[t].start();
+        }
+        for (Thread worker : workers) worker.join();
+        StdOut.println("size after parallel insert: " + queue.size());
+
+        queue.decreaseKey(-1, threads * perThread - 1);
+
+        // relaxed order: first pops are near, not necessarily exactly, the minimum
+        StdOut.print("first pops:");
+        for (int i = 0; i < 8; i++) {
+            StdOut.print(" " + queue.pop());
+        }
+        StdOut.println();
+
+        int count = 8;
+        while (!queue.isEmpty()) {
+            queue.pop();
+            count++;
+        }
+        StdOut.println("popped: " + count + ", empty: " + queue.isEmpty());
+    }
+}
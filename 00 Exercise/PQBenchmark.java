@@ -0,0 +1,452 @@
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+
+// benchmark client for the priority queue implementations in this folder
+// usage: java PQBenchmark update [heapSize]
+//        java PQBenchmark primitive [size] [rounds]
+//        java PQBenchmark arity
+//        java PQBenchmark bulk [size] [k]
+//        java PQBenchmark concurrent [maxThreads] [opsPerThread]
+//        java PQBenchmark trace [vertices] [degree]
+public class PQBenchmark {
+    private static final int[] UPDATE_COUNTS = {100000, 1000000};
+    private static final int[] ARITIES = {2, 4, 8, 16};
+    private static final int[] HEAP_SIZES = {10000, 100000, 1000000};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // bytes allocated so far by the calling thread
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static void report(String name, long ops, double seconds, long bytes) {
+        StdOut.printf("%-24s %14.0f %12.1f\n", name, ops / Math.max(seconds, 1e-3), (double) bytes / ops);
+    }
+
+    // random key updates against the scan based IndexedMinPQ
+    private static double scanUpdates(int heapSize, double[] initKeys, int[] handles, double[] newKeys) {
+        IndexedMinPQ<Double, Integer> queue = new IndexedMinPQ<>();
+        double[] current = initKeys.clone();
+        for (int i = 0; i < heapSize; i++) {
+            queue.insert(current[i], i);
+        }
+
+        Stopwatch stopwatch = new Stopwatch();
+        for (int u = 0; u < handles.length; u++) {
+            int i = handles[u];
+            if (newKeys[u] < current[i]) queue.decreaseKey(newKeys[u], i);
+            else queue.increaseKey(newKeys[u], i);
+            current[i] = newKeys[u];
+        }
+        return stopwatch.elapsedTime();
+    }
+
+    // the same updates against the handle indexed IntIndexedMinPQ
+    private static double indexedUpdates(int heapSize, double[] initKeys, int[] handles, double[] newKeys) {
+        IntIndexedMinPQ<Double> queue = new IntIndexedMinPQ<>(heapSize);
+        for (int i = 0; i < heapSize; i++) {
+            queue.insert(i, initKeys[i]);
+        }
+
+        Stopwatch stopwatch = new Stopwatch();
+        for (int u = 0; u < handles.length; u++) {
+            queue.changeKey(handles[u], newKeys[u]);
+        }
+        return stopwatch.elapsedTime();
+    }
+
+    private static void update(int heapSize) {
+        StdOut.println("heap size: " + heapSize);
+        StdOut.printf("%10s %12s %12s %10s\n", "updates", "scan(s)", "indexed(s)", "speedup");
+
+        double[] initKeys = new double[heapSize];
+        for (int i = 0; i < heapSize; i++) {
+            initKeys[i] = StdRandom.uniformDouble();
+        }
+
+        for (int count : UPDATE_COUNTS) {
+            int[] handles = new int[count];
+            double[] newKeys = new double[count];
+            for (int u = 0; u < count; u++) {
+                handles[u] = StdRandom.uniformInt(heapSize);
+                newKeys[u] = StdRandom.uniformDouble();
+            }
+
+            double scan = scanUpdates(heapSize, initKeys, handles, newKeys);
+            double indexed = indexedUpdates(heapSize, initKeys, handles, newKeys);
+            StdOut.printf("%10d %12.3f %12.3f %9.1fx\n", count, scan, indexed, scan / Math.max(indexed, 1e-3));
+        }
+    }
+
+    // insert all keys then pop them all, once per round
+    private static void primitive(int size, int rounds) {
+        double[] keys = new double[size];
+        long[] longKeys = new long[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = StdRandom.uniformDouble();
+            longKeys[i] = (long) (keys[i] * Integer.MAX_VALUE);
+        }
+        long ops = 2L * size * rounds;
+
+        StdOut.println("size: " + size + ", rounds: " + rounds + ", op = insert or pop");
+        StdOut.printf("%-24s %14s %12s\n", "queue", "ops/sec", "bytes/op");
+
+        // warm up every variant before measuring
+        for (int pass = 0; pass < 2; pass++) {
+            boolean print = pass == 1;
+
+            long bytes = allocatedBytes();
+            Stopwatch stopwatch = new Stopwatch();
+            for (int r = 0; r < rounds; r++) {
+                IndexedMinPQ<Double, Integer> queue = new IndexedMinPQ<>();
+                for (int i = 0; i < size; i++) queue.insert(keys[i], i);
+                for (int i = 0; i < size; i++) queue.pop();
+            }
+            if (print) report("IndexedMinPQ", ops, stopwatch.elapsedTime(), allocatedBytes() - bytes);
+
+            IntIndexedMinPQ<Double> generic = new IntIndexedMinPQ<>(size);
+            bytes = allocatedBytes();
+            stopwatch = new Stopwatch();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < size; i++) generic.insert(i, keys[i]);
+                for (int i = 0; i < size; i++) generic.pop();
+            }
+            if (print) report("IntIndexedMinPQ<Double>", ops, stopwatch.elapsedTime(), allocatedBytes() - bytes);
+
+            IntDoubleIndexedMinPQ doubles = new IntDoubleIndexedMinPQ(size);
+            bytes = allocatedBytes();
+            stopwatch = new Stopwatch();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < size; i++) doubles.insert(i, keys[i]);
+                for (int i = 0; i < size; i++) doubles.pop();
+            }
+            if (print) report("IntDoubleIndexedMinPQ", ops, stopwatch.elapsedTime(), allocatedBytes() - bytes);
+
+            IntLongIndexedMinPQ longs = new IntLongIndexedMinPQ(size);
+            bytes = allocatedBytes();
+            stopwatch = new Stopwatch();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < size; i++) longs.insert(i, longKeys[i]);
+                for (int i = 0; i < size; i++) longs.pop();
+            }
+            if (print) report("IntLongIndexedMinPQ", ops, stopwatch.elapsedTime(), allocatedBytes() - bytes);
+        }
+    }
+
+    // sweep heap arity at several sizes, reported in million operations per second
+    private static void arity(boolean print) {
+        if (print) StdOut.println("IntDoubleIndexedMinPQ (Mops/s)");
+        if (print) StdOut.printf("%8s %6s %10s %10s %12s\n", "size", "arity", "insert", "pop", "decreaseKey");
+
+        for (int size : HEAP_SIZES) {
+            double[] keys = new double[size];
+            int[] handles = new int[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = StdRandom.uniformDouble();
+                handles[i] = StdRandom.uniformInt(size);
+            }
+
+            for (int arity : ARITIES) {
+                IntDoubleIndexedMinPQ queue = new IntDoubleIndexedMinPQ(size, arity);
+
+                Stopwatch stopwatch = new Stopwatch();
+                for (int i = 0; i < size; i++) queue.insert(i, keys[i]);
+                double insert = stopwatch.elapsedTime();
+
+                stopwatch = new Stopwatch();
+                for (int i = 0; i < size; i++) {
+                    int h = handles[i];
+                    queue.decreaseKey(h, queue.keyOf(h) * 0.5);
+                }
+                double decrease = stopwatch.elapsedTime();
+
+                stopwatch = new Stopwatch();
+                for (int i = 0; i < size; i++) queue.pop();
+                double pop = stopwatch.elapsedTime();
+
+                if (print) StdOut.printf("%8d %6d %10.2f %10.2f %12.2f\n", size, arity,
+                        size / Math.max(insert, 1e-3) / 1e6, size / Math.max(pop, 1e-3) / 1e6,
+                        size / Math.max(decrease, 1e-3) / 1e6);
+            }
+        }
+
+        if (print) {
+            StdOut.println();
+            StdOut.println("IndexedMinPQ (Mops/s)");
+            StdOut.printf("%8s %6s %10s %10s\n", "size", "arity", "insert", "pop");
+        }
+
+        for (int size : HEAP_SIZES) {
+            double[] keys = new double[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = StdRandom.uniformDouble();
+            }
+
+            for (int arity : ARITIES) {
+                IndexedMinPQ<Double, Integer> queue = new IndexedMinPQ<>(arity);
+
+                Stopwatch stopwatch = new Stopwatch();
+                for (int i = 0; i < size; i++) queue.insert(keys[i], i);
+                double insert = stopwatch.elapsedTime();
+
+                stopwatch = new Stopwatch();
+                for (int i = 0; i < size; i++) queue.pop();
+                double pop = stopwatch.elapsedTime();
+
+                if (print) StdOut.printf("%8d %6d %10.2f %10.2f\n", size, arity,
+                        size / Math.max(insert, 1e-3) / 1e6, size / Math.max(pop, 1e-3) / 1e6);
+            }
+        }
+    }
+
+    // n inserts vs one insertAll, then draining top k with pop vs popAll
+    // descending keys are the worst case for swim, every insert travels to the root
+    private static void bulk(int size, int k, boolean descending, boolean print) {
+        Double[] keys = new Double[size];
+        Integer[] values = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = descending ? (double) (size - i) : StdRandom.uniformDouble();
+            values[i] = i;
+        }
+
+        Stopwatch stopwatch = new Stopwatch();
+        IndexedMinPQ<Double, Integer> single = new IndexedMinPQ<>();
+        for (int i = 0; i < size; i++) single.insert(keys[i], values[i]);
+        double insert = stopwatch.elapsedTime();
+
+        stopwatch = new Stopwatch();
+        IndexedMinPQ<Double, Integer> bulk = new IndexedMinPQ<>(keys, values);
+        double insertAll = stopwatch.elapsedTime();
+
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < k; i++) single.pop();
+        double pop = stopwatch.elapsedTime();
+
+        Integer[] out = new Integer[k];
+        stopwatch = new Stopwatch();
+        bulk.popAll(k, out);
+        double popAll = stopwatch.elapsedTime();
+
+        if (print) {
+            StdOut.println("size: " + size + ", k: " + k + (descending ? ", descending keys" : ", random keys"));
+            StdOut.printf("%-12s %10.3f s\n", "insert", insert);
+            StdOut.printf("%-12s %10.3f s (%.1fx)\n", "insertAll", insertAll, insert / Math.max(insertAll, 1e-3));
+            StdOut.printf("%-12s %10.3f s\n", "pop", pop);
+            StdOut.printf("%-12s %10.3f s\n", "popAll", popAll);
+        }
+    }
+
+    // every worker alternates insert and pop on a shared queue, returns total ops per second.
+    // values inserted are distinct from firstValue on, runs on one queue must not overlap
+    private static double concurrentRun(MultiMinPQ<Double, Integer> queue, int threads, int opsPerThread,
+            int firstValue) throws InterruptedException {
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int base = firstValue + t * opsPerThread;
+            workers[t] = new Thread(() -> {
+                for (int i = 0; i < opsPerThread; i += 2) {
+                    queue.insert(ThreadLocalRandom.current().nextDouble(), base + i);
+                    queue.pop();
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        return (double) threads * opsPerThread / seconds;
+    }
+
+    private static void concurrent(int maxThreads, int opsPerThread) throws InterruptedException {
+        int prefill = 100000;
+
+        StdOut.println("prefill: " + prefill + ", ops per thread: " + opsPerThread
+                + ", cores: " + Runtime.getRuntime().availableProcessors());
+        StdOut.printf("%8s %16s %16s\n", "threads", "strict(Mops/s)", "relaxed(Mops/s)");
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            double[] result = new double[2];
+
+            // one queue is a global lock, relaxed uses two queues per thread
+            int[] queueCounts = {1, 2 * threads};
+            for (int q = 0; q < queueCounts.length; q++) {
+                MultiMinPQ<Double, Integer> queue = new MultiMinPQ<>(queueCounts[q]);
+                for (int i = 0; i < prefill; i++) {
+                    queue.insert(StdRandom.uniformDouble(), -i - 1);
+                }
+
+                concurrentRun(queue, threads, opsPerThread / 10, 0);
+                result[q] = concurrentRun(queue, threads, opsPerThread, threads * (opsPerThread / 10));
+            }
+
+            StdOut.printf("%8d %16.2f %16.2f\n", threads, result[0] / 1e6, result[1] / 1e6);
+        }
+    }
+
+    private static final int TRACE_INSERT = 0;
+    private static final int TRACE_POP = 1;
+    private static final int TRACE_DECREASE = 2;
+
+    // operation trace recorded once and replayed on every implementation
+    private static class Trace {
+        private int length;
+        private int[] ops = new int[16];
+        private int[] keys = new int[16];
+        private int[] values = new int[16];
+
+        private void add(int op, int key, int value) {
+            if (length == ops.length) {
+                ops = Arrays.copyOf(ops, 2 * length);
+                keys = Arrays.copyOf(keys, 2 * length);
+                values = Arrays.copyOf(values, 2 * length);
+            }
+
+            ops[length] = op;
+            keys[length] = key;
+            values[length] = value;
+            length++;
+        }
+    }
+
+    // record the queue operations of Dijkstra on a random digraph with integer weights 1..100,
+    // keys are dist * V + vertex so ties never depend on the implementation and stay monotone
+    private static Trace recordDijkstra(int vertices, int degree) {
+        int[][] adj = new int[vertices][degree];
+        int[][] weight = new int[vertices][degree];
+        for (int v = 0; v < vertices; v++) {
+            for (int e = 0; e < degree; e++) {
+                adj[v][e] = StdRandom.uniformInt(vertices);
+                weight[v][e] = 1 + StdRandom.uniformInt(100);
+            }
+        }
+
+        Trace trace = new Trace();
+        IntLongIndexedMinPQ queue = new IntLongIndexedMinPQ(vertices);
+        long[] dist = new long[vertices];
+        Arrays.fill(dist, Long.MAX_VALUE);
+
+        dist[0] = 0;
+        queue.insert(0, 0);
+        trace.add(TRACE_INSERT, 0, 0);
+
+        while (!queue.isEmpty()) {
+            int v = queue.pop();
+            trace.add(TRACE_POP, 0, v);
+
+            for (int e = 0; e < degree; e++) {
+                int w = adj[v][e];
+                long d = dist[v] + weight[v][e];
+                if (d >= dist[w]) continue;
+
+                dist[w] = d;
+                int key = Math.toIntExact(d * vertices + w);
+                if (queue.contains(w)) {
+                    queue.decreaseKey(w, d);
+                    trace.add(TRACE_DECREASE, key, w);
+                } else {
+                    queue.insert(w, d);
+                    trace.add(TRACE_INSERT, key, w);
+                }
+            }
+        }
+
+        return trace;
+    }
+
+    // replay trace, returns a checksum of the popped sequence so implementations can be compared
+    private static long replay(MinPriorityQueue<Integer, Integer> queue, Trace trace, Integer[] boxed) {
+        long checksum = 0;
+        for (int i = 0; i < trace.length; i++) {
+            switch (trace.ops[i]) {
+                case TRACE_INSERT:
+                    queue.insert(trace.keys[i], boxed[trace.values[i]]);
+                    break;
+                case TRACE_POP:
+                    checksum = checksum * 31 + queue.pop();
+                    break;
+                default:
+                    queue.decreaseKey(trace.keys[i], boxed[trace.values[i]]);
+                    break;
+            }
+        }
+
+        return checksum;
+    }
+
+    private static void trace(int vertices, int degree) {
+        Trace trace = recordDijkstra(vertices, degree);
+        int decreases = 0;
+        for (int i = 0; i < trace.length; i++) {
+            if (trace.ops[i] == TRACE_DECREASE) decreases++;
+        }
+
+        Integer[] boxed = new Integer[vertices];
+        for (int i = 0; i < vertices; i++) {
+            boxed[i] = i;
+        }
+
+        StdOut.println("dijkstra trace, vertices: " + vertices + ", degree: " + degree
+                + ", ops: " + trace.length + ", decreaseKey: " + decreases);
+        StdOut.printf("%-16s %10s %20s\n", "queue", "time(s)", "checksum");
+
+        String[] names = {"IndexedMinPQ", "IndexedMinPQ(4)", "MultiMinPQ(1)", "PairingHeap", "RadixHeap"};
+        for (int pass = 0; pass < 2; pass++) {
+            for (String name : names) {
+                MinPriorityQueue<Integer, Integer> queue;
+                if (name.equals("IndexedMinPQ")) queue = new IndexedMinPQ<>();
+                else if (name.equals("IndexedMinPQ(4)")) queue = new IndexedMinPQ<>(4);
+                else if (name.equals("MultiMinPQ(1)")) queue = new MultiMinPQ<>(1);
+                else if (name.equals("PairingHeap")) queue = new PairingHeap<>();
+                else queue = new RadixHeap<>();
+
+                Stopwatch stopwatch = new Stopwatch();
+                long checksum = replay(queue, trace, boxed);
+                double elapsed = stopwatch.elapsedTime();
+
+                // first pass only warms up the JIT
+                if (pass == 1) StdOut.printf("%-16s %10.3f %20d\n", name, elapsed, checksum);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "update";
+
+        if (mode.equals("update")) {
+            update(args.length > 1 ? Integer.parseInt(args[1]) : 1000);
+        } else if (mode.equals("primitive")) {
+            int size = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+            int rounds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+            primitive(size, rounds);
+        } else if (mode.equals("arity")) {
+            // first sweep only warms up the JIT
+            arity(false);
+            arity(true);
+        } else if (mode.equals("bulk")) {
+            int size = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+            int k = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+            bulk(size, k, false, false);
+            bulk(size, k, false, true);
+            bulk(size, k, true, true);
+        } else if (mode.equals("concurrent")) {
+            int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            int opsPerThread = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+            concurrent(maxThreads, opsPerThread);
+        } else if (mode.equals("trace")) {
+            int vertices = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+            int degree = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+            trace(vertices, degree);
+        } else {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+// pairing heap: O(1) insert and decreaseKey, O(log n) amortized pop.
+// values are located through a hash map so decreaseKey needs no scan
+public class PairingHeap<Key extends Comparable<Key>, Value extends Comparable<Value>>
+        implements MinPriorityQueue<Key, Value> {
+    private class Node {
+        Key key;
+        Value value;
+
+        // leftmost child, next sibling, and previous sibling or parent for the leftmost child
+        Node child;
+        Node next;
+        Node prev;
+
+        Node(Key key, Value value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private Node root;
+    private final HashMap<Value, Node> nodes;
+
+    // helper container for the pairing passes of pop
+    private final ArrayList<Node> pairs;
+
+    // link two roots, the one with larger key becomes leftmost child of the other
+    private Node link(Node a, Node b) {
+        if (b == null) return a;
+        if (b.key.compareTo(a.key) < 0) {
+            Node temp = a;
+            a = b;
+            b = temp;
+        }
+
+        b.prev = a;
+        b.next = a.child;
+        if (a.child != null) a.child.prev = b;
+        a.child = b;
+        a.next = null;
+        a.prev = null;
+        return a;
+    }
+
+    // detach subtree rooted at node from its parent or siblings
+    private void cut(Node node) {
+        if (node.prev.child == node) node.prev.child = node.next;
+        else node.prev.next = node.next;
+        if (node.next != null) node.next.prev = node.prev;
+        node.next = null;
+        node.prev = null;
+    }
+
+    // two pass pairing of a sibling list
+    private Node merge(Node first) {
+        if (first == null) return null;
+
+        pairs.clear();
+        while (first != null) {
+            Node a = first;
+            Node b = a.next;
+            first = b == null ? null : b.next;
+            a.next = null;
+            a.prev = null;
+            if (b != null) {
+                b.next = null;
+                b.prev = null;
+            }
+            pairs.add(link(a, b));
+        }
+
+        Node result = pairs.get(pairs.size() - 1);
+        for (int i = pairs.size() - 2; i >= 0; i--) {
+            result = link(pairs.get(i), result);
+        }
+
+        return result;
+    }
+
+    public PairingHeap() {
+        nodes = new HashMap<>();
+        pairs = new ArrayList<>();
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public void insert(Key key, Value value) {
+        if (key == null || value == null) throw new IllegalArgumentException("argument is null");
+        if (nodes.containsKey(value)) throw new IllegalArgumentException("value is already in the heap");
+
+        Node node = new Node(key, value);
+        nodes.put(value, node);
+        root = root == null ? node : link(root, node);
+    }
+
+    public Value pop() {
+        if (root == null) throw new IllegalStateException();
+
+        Node min = root;
+        root = merge(min.child);
+        nodes.remove(min.value);
+        return min.value;
+    }
+
+    // values not in heap are ignored, as in IndexedMinPQ
+    public void decreaseKey(Key newKey, Value value) {
+        Node node = nodes.get(value);
+        if (node == null) return;
+
+        node.key = newKey;
+        if (node == root) return;
+
+        cut(node);
+        root = link(root, node);
+    }
+
+    public void increaseKey(Key newKey, Value value) {
+        Node node = nodes.get(value);
+        if (node == null) return;
+
+        // children may now violate heap order: detach node, re-pair its children and relink both
+        if (node != root) cut(node);
+        else root = null;
+
+        Node children = merge(node.child);
+        node.child = null;
+        node.key = newKey;
+
+        Node rest = root == null ? children : link(root, children);
+        root = rest == null ? node : link(rest, node);
+    }
+
+    public static void main(String[] args) {
+        PairingHeap<String, Integer> heap = new PairingHeap<>();
+
+        String[] keys = {"p", "o", "b", "u", "a", "t", "r", "y"};
+        for (int i = 0; i < keys.length; i++) {
+            heap.insert(keys[i], i);
+        }
+
+        heap.increaseKey("z", 4);
+        heap.decreaseKey("c", 0);
+
+        while (heap.size() > 0) {
+            StdOut.print(heap.pop() + " ");
+        }
+        StdOut.println();
+    }
+}
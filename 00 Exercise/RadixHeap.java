@@ -0,0 +1,144 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.HashMap;
+
+// radix heap for monotone non-negative integer priorities (Dijkstra like workloads):
+// a key may never be smaller than the last popped key. amortized O(1) insert and
+// decreaseKey, O(log C) amortized pop where C is the key range
+public class RadixHeap<Value extends Comparable<Value>> implements MinPriorityQueue<Integer, Value> {
+    private static final int BUCKETS = Integer.SIZE + 1;
+
+    private class Node {
+        int key;
+        Value value;
+        int bucket;
+        Node prev;
+        Node next;
+
+        Node(int key, Value value) {
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    // bucket b > 0 holds keys whose highest bit differing from last is bit b - 1, bucket 0 holds key == last
+    private final Node[] buckets;
+    private final HashMap<Value, Node> nodes;
+    private int last;
+
+    private int bucketOf(int key) {
+        return key == last ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(key ^ last);
+    }
+
+    private void link(Node node) {
+        int b = bucketOf(node.key);
+        node.bucket = b;
+        node.prev = null;
+        node.next = buckets[b];
+        if (buckets[b] != null) buckets[b].prev = node;
+        buckets[b] = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) node.prev.next = node.next;
+        else buckets[node.bucket] = node.next;
+        if (node.next != null) node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private void validateKey(Integer key) {
+        if (key == null) throw new IllegalArgumentException("key is null");
+        if (key < last) throw new IllegalArgumentException("key " + key + " is smaller than last popped key " + last);
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RadixHeap() {
+        buckets = new RadixHeap.Node[BUCKETS];
+        nodes = new HashMap<>();
+        last = 0;
+    }
+
+    public int size() {
+        return nodes.size();
+    }
+
+    public void insert(Integer key, Value value) {
+        validateKey(key);
+        if (value == null) throw new IllegalArgumentException("value is null");
+        if (nodes.containsKey(value)) throw new IllegalArgumentException("value is already in the heap");
+
+        Node node = new Node(key, value);
+        nodes.put(value, node);
+        link(node);
+    }
+
+    public Value pop() {
+        if (nodes.isEmpty()) throw new IllegalStateException();
+
+        if (buckets[0] == null) {
+            // move last to the minimum of the first non empty bucket and redistribute it,
+            // every entry lands in a strictly lower bucket
+            int b = 1;
+            while (buckets[b] == null) b++;
+
+            int min = Integer.MAX_VALUE;
+            for (Node node = buckets[b]; node != null; node = node.next) {
+                min = Math.min(min, node.key);
+            }
+            last = min;
+
+            Node node = buckets[b];
+            buckets[b] = null;
+            while (node != null) {
+                Node next = node.next;
+                link(node);
+                node = next;
+            }
+        }
+
+        Node min = buckets[0];
+        unlink(min);
+        nodes.remove(min.value);
+        return min.value;
+    }
+
+    // values not in heap are ignored, as in IndexedMinPQ
+    public void decreaseKey(Integer newKey, Value value) {
+        changeKey(newKey, value);
+    }
+
+    public void increaseKey(Integer newKey, Value value) {
+        changeKey(newKey, value);
+    }
+
+    private void changeKey(Integer newKey, Value value) {
+        validateKey(newKey);
+        Node node = nodes.get(value);
+        if (node == null) return;
+
+        unlink(node);
+        node.key = newKey;
+        link(node);
+    }
+
+    public static void main(String[] args) {
+        RadixHeap<String> heap = new RadixHeap<>();
+
+        int[] keys = {15, 14, 2, 21, 1, 20, 18, 25};
+        String[] values = {"p", "o", "b", "u", "a", "t", "r", "y"};
+        for (int i = 0; i < keys.length; i++) {
+            heap.insert(keys[i], values[i]);
+        }
+
+        heap.increaseKey(26, "a");
+        StdOut.print(heap.pop() + " ");
+        heap.decreaseKey(3, "t");
+        heap.insert(4, "c");
+
+        while (heap.size() > 0) {
+            StdOut.print(heap.pop() + " ");
+        }
+        StdOut.println();
+    }
+}
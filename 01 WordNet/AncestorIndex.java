@@ -0,0 +1,336 @@
+import edu.princeton.cs.algs4.Bag;
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+// precomputed ancestor labels for a DAG: label(v) lists every ancestor of v with its BFS distance,
+// sorted by vertex, stored back to back in one array. the shortest ancestral path between two
+// vertices is then a merge of two labels instead of a search. labels are only small when the DAG is
+// shallow (as taxonomies are), so building gives up once a label budget is exceeded
+public class AncestorIndex {
+    private static final int DEFAULT_MAX_ENTRIES = 50_000_000;
+
+    private final int V;
+
+    // label of v is labelVertex/labelDist[offsets[v] .. offsets[v + 1])
+    private final int[] offsets;
+    private int[] labelVertex;
+    private int[] labelDist;
+
+    // vertices whose ancestors changed after the build, their labels must not be used
+    private BitSet stale;
+
+    // postorder of a DFS along hypernym edges: in a DAG every vertex comes after all its ancestors
+    private static int[] topologicalOrder(CSRDigraph G) {
+        int[] order = new int[G.V()];
+        int count = 0;
+        boolean[] marked = new boolean[G.V()];
+        int[] stack = new int[G.V()];
+        int[] next = new int[G.V()];
+
+        // iterative, deep taxonomies would overflow a recursive DFS
+        for (int s = 0; s < G.V(); s++) {
+            if (marked[s]) continue;
+            int top = 0;
+            stack[top++] = s;
+            marked[s] = true;
+            next[s] = G.begin(s);
+
+            while (top > 0) {
+                int v = stack[top - 1];
+                if (next[v] < G.end(v)) {
+                    int w = G.target(next[v]++);
+                    if (marked[w]) continue;
+                    marked[w] = true;
+                    next[w] = G.begin(w);
+                    stack[top++] = w;
+                } else {
+                    order[count++] = v;
+                    top--;
+                }
+            }
+        }
+
+        return order;
+    }
+
+    private int[] grow(int[] array, int required) {
+        if (required <= array.length) return array;
+        return Arrays.copyOf(array, Math.max(required, 2 * array.length));
+    }
+
+    private AncestorIndex(CSRDigraph G, int maxEntries) {
+        V = G.V();
+        offsets = new int[V + 1];
+        labelVertex = new int[Math.max(16, 2 * V)];
+        labelDist = new int[labelVertex.length];
+
+        // labels are built in topological order, so every parent label is final and lives at an
+        // offset recorded in start[]; they are appended to the arrays in that order and moved to
+        // vertex order once complete
+        int[] start = new int[V];
+        int[] length = new int[V];
+        int size = 0;
+
+        int[] mergedVertex = new int[16];
+        int[] mergedDist = new int[16];
+        int[] scratchVertex = new int[16];
+        int[] scratchDist = new int[16];
+
+        for (int v : topologicalOrder(G)) {
+            int n = 1;
+            mergedVertex[0] = v;
+            mergedDist[0] = 0;
+
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int p = G.target(i);
+                int required = n + length[p];
+                scratchVertex = grow(scratchVertex, required);
+                scratchDist = grow(scratchDist, required);
+
+                // merge current label with parent label shifted by one
+                int a = 0;
+                int b = start[p];
+                int bEnd = start[p] + length[p];
+                int m = 0;
+                while (a < n || b < bEnd) {
+                    if (b == bEnd || (a < n && mergedVertex[a] < labelVertex[b])) {
+                        scratchVertex[m] = mergedVertex[a];
+                        scratchDist[m++] = mergedDist[a++];
+                    } else if (a == n || labelVertex[b] < mergedVertex[a]) {
+                        scratchVertex[m] = labelVertex[b];
+                        scratchDist[m++] = labelDist[b++] + 1;
+                    } else {
+                        scratchVertex[m] = mergedVertex[a];
+                        scratchDist[m++] = Math.min(mergedDist[a++], labelDist[b++] + 1);
+                    }
+                }
+
+                int[] temp = mergedVertex;
+                mergedVertex = scratchVertex;
+                scratchVertex = temp;
+                temp = mergedDist;
+                mergedDist = scratchDist;
+                scratchDist = temp;
+                n = m;
+                scratchVertex = grow(scratchVertex, n);
+                scratchDist = grow(scratchDist, n);
+            }
+
+            if ((long) size + n > maxEntries) {
+                throw new IllegalStateException("ancestor labels exceed " + maxEntries + " entries");
+            }
+
+            labelVertex = grow(labelVertex, size + n);
+            labelDist = grow(labelDist, size + n);
+            System.arraycopy(mergedVertex, 0, labelVertex, size, n);
+            System.arraycopy(mergedDist, 0, labelDist, size, n);
+            start[v] = size;
+            length[v] = n;
+            size += n;
+        }
+
+        // move labels to vertex order so offsets[] alone locates them
+        int[] vertexOrdered = new int[size];
+        int[] distOrdered = new int[size];
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] = offsets[v] + length[v];
+            System.arraycopy(labelVertex, start[v], vertexOrdered, offsets[v], length[v]);
+            System.arraycopy(labelDist, start[v], distOrdered, offsets[v], length[v]);
+        }
+        labelVertex = vertexOrdered;
+        labelDist = distOrdered;
+        stale = new BitSet();
+    }
+
+    private AncestorIndex(AncestorIndex that, BitSet stale) {
+        V = that.V;
+        offsets = that.offsets;
+        labelVertex = that.labelVertex;
+        labelDist = that.labelDist;
+        this.stale = stale;
+    }
+
+    // copy sharing the labels, with the labels of the given vertices marked stale
+    public AncestorIndex invalidate(int[] vertices) {
+        BitSet marked = (BitSet) stale.clone();
+        for (int v : vertices) {
+            if (v < V) marked.set(v);
+        }
+
+        return new AncestorIndex(this, marked);
+    }
+
+    // are the labels of set[from .. to) all valid, i.e. built and not stale
+    public boolean covers(int[] set, int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (set[i] >= V || stale.get(set[i])) return false;
+        }
+
+        return true;
+    }
+
+    // number of stale labels
+    public int stale() {
+        return stale.cardinality();
+    }
+
+    // index of a DAG, or null if its labels would exceed maxEntries (callers then fall back to BFS).
+    // lengths are exact, but when several ancestors are at the shortest length a query may name a
+    // different one than SAP's search does
+    public static AncestorIndex build(CSRDigraph G, int maxEntries) {
+        if (G == null) throw new IllegalArgumentException("graph is null");
+
+        try {
+            return new AncestorIndex(G, maxEntries);
+        } catch (IllegalStateException e) {
+            return null;
+        }
+    }
+
+    public static AncestorIndex build(CSRDigraph G) {
+        return build(G, DEFAULT_MAX_ENTRIES);
+    }
+
+    public int V() {
+        return V;
+    }
+
+    // total number of (ancestor, distance) entries
+    public int entries() {
+        return offsets[V];
+    }
+
+    // approximate heap footprint of the index in bytes
+    public long memoryBytes() {
+        return 16L + 4L * offsets.length + 2 * (16L + 4L * labelVertex.length);
+    }
+
+    // shortest ancestral path between two vertex sets: length and ancestor, length -1 if no such path
+    public SAPCache.Result query(Iterable<Integer> setA, Iterable<Integer> setB) {
+        int length = Integer.MAX_VALUE;
+        int ancestor = -1;
+
+        for (int v : setA) {
+            for (int w : setB) {
+                long best = merge(v, w, length);
+                if ((int) (best >>> 32) < length) {
+                    length = (int) (best >>> 32);
+                    ancestor = (int) best;
+                }
+            }
+        }
+
+        return new SAPCache.Result(length == Integer.MAX_VALUE ? -1 : length, ancestor);
+    }
+
+    // same for the array ranges setA[fromA .. toA) and setB[fromB .. toB), e.g. noun postings
+    public SAPCache.Result query(int[] setA, int fromA, int toA, int[] setB, int fromB, int toB) {
+        int length = Integer.MAX_VALUE;
+        int ancestor = -1;
+
+        for (int i = fromA; i < toA; i++) {
+            for (int j = fromB; j < toB; j++) {
+                long best = merge(setA[i], setB[j], length);
+                if ((int) (best >>> 32) < length) {
+                    length = (int) (best >>> 32);
+                    ancestor = (int) best;
+                }
+            }
+        }
+
+        return new SAPCache.Result(length == Integer.MAX_VALUE ? -1 : length, ancestor);
+    }
+
+    // merge the labels of v and w, returns the best length below bound and its ancestor packed as
+    // length << 32 | ancestor, or bound << 32 if there is none
+    private long merge(int v, int w, int bound) {
+        int length = bound;
+        int ancestor = -1;
+        int i = offsets[v];
+        int iEnd = offsets[v + 1];
+        int j = offsets[w];
+        int jEnd = offsets[w + 1];
+
+        while (i < iEnd && j < jEnd) {
+            if (labelVertex[i] < labelVertex[j]) i++;
+            else if (labelVertex[i] > labelVertex[j]) j++;
+            else {
+                if (labelDist[i] + labelDist[j] < length) {
+                    length = labelDist[i] + labelDist[j];
+                    ancestor = labelVertex[i];
+                }
+                i++;
+                j++;
+            }
+        }
+
+        return (long) length << 32 | (ancestor & 0xffffffffL);
+    }
+
+    // ancestors of a vertex set, i.e. the union of labels with minimum distance
+    public SAP.Ancestors ancestors(Iterable<Integer> set) {
+        int n = 0;
+        int[] array = new int[4];
+        for (int v : set) {
+            if (n == array.length) array = Arrays.copyOf(array, 2 * n);
+            array[n++] = v;
+        }
+
+        return ancestors(array, 0, n);
+    }
+
+    // same for the array range set[from .. to)
+    public SAP.Ancestors ancestors(int[] set, int from, int to) {
+        int[] vertices = new int[0];
+        int[] dist = new int[0];
+
+        for (int k = from; k < to; k++) {
+            int v = set[k];
+            int n = offsets[v + 1] - offsets[v];
+            int[] mergedVertex = new int[vertices.length + n];
+            int[] mergedDist = new int[vertices.length + n];
+
+            int a = 0;
+            int b = offsets[v];
+            int bEnd = offsets[v + 1];
+            int m = 0;
+            while (a < vertices.length || b < bEnd) {
+                if (b == bEnd || (a < vertices.length && vertices[a] < labelVertex[b])) {
+                    mergedVertex[m] = vertices[a];
+                    mergedDist[m++] = dist[a++];
+                } else if (a == vertices.length || labelVertex[b] < vertices[a]) {
+                    mergedVertex[m] = labelVertex[b];
+                    mergedDist[m++] = labelDist[b++];
+                } else {
+                    mergedVertex[m] = vertices[a];
+                    mergedDist[m++] = Math.min(dist[a++], labelDist[b++]);
+                }
+            }
+
+            vertices = Arrays.copyOf(mergedVertex, m);
+            dist = Arrays.copyOf(mergedDist, m);
+        }
+
+        return new SAP.Ancestors(vertices, dist);
+    }
+
+    public static void main(String[] args) {
+        CSRDigraph G = new CSRDigraph(new Digraph(new In(args[0])));
+        AncestorIndex index = build(G);
+        SAP sap = new SAP(G);
+        StdOut.println("entries: " + index.entries() + ", bytes: " + index.memoryBytes());
+
+        for (int i = 1; i + 1 < args.length; i += 2) {
+            Bag<Integer> a = new Bag<>();
+            a.add(Integer.parseInt(args[i]));
+            Bag<Integer> b = new Bag<>();
+            b.add(Integer.parseInt(args[i + 1]));
+            SAPCache.Result result = index.query(a, b);
+            StdOut.printf("length = %d (bfs %d), ancestor = %d\n", result.length(), sap.length(a, b), result.ancestor());
+        }
+    }
+}
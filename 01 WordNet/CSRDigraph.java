@@ -0,0 +1,190 @@
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+// immutable digraph in compressed sparse row form: the targets of v are
+// targets[offsets[v]] .. targets[offsets[v + 1] - 1], no per-vertex objects and no boxing.
+// the two sections are heap arrays, or views of a mapped snapshot that are read in place
+public class CSRDigraph {
+    private final int V;
+    private final int[] offsets;
+    private final int[] targets;
+
+    // set instead of the arrays for a graph over a mapped snapshot
+    private final IntBuffer offsetView;
+    private final IntBuffer targetView;
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    // takes ownership of the arrays, offsets must have V + 1 entries
+    CSRDigraph(int V, int[] offsets, int[] targets) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices is negative");
+        if (offsets.length != V + 1 || offsets[V] != targets.length)
+            throw new IllegalArgumentException("offsets do not match targets");
+
+        this.V = V;
+        this.offsets = offsets;
+        this.targets = targets;
+        this.offsetView = null;
+        this.targetView = null;
+    }
+
+    // graph over views of V + 1 offsets and the targets, which must not change afterwards
+    CSRDigraph(int V, IntBuffer offsets, IntBuffer targets) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices is negative");
+        if (offsets.limit() != V + 1 || offsets.get(V) != targets.limit())
+            throw new IllegalArgumentException("offsets do not match targets");
+
+        this.V = V;
+        this.offsets = null;
+        this.targets = null;
+        this.offsetView = offsets;
+        this.targetView = targets;
+    }
+
+    public CSRDigraph(Digraph digraph) {
+        if (digraph == null) throw new IllegalArgumentException("digraph is null");
+
+        V = digraph.V();
+        offsets = new int[V + 1];
+        targets = new int[digraph.E()];
+        offsetView = null;
+        targetView = null;
+
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] = offsets[v] + digraph.outdegree(v);
+
+            // Bag iterates in reverse insertion order, store edges in insertion order
+            int i = offsets[v + 1];
+            for (int w : digraph.adj(v)) {
+                targets[--i] = w;
+            }
+        }
+    }
+
+    public int V() {
+        return V;
+    }
+
+    public int E() {
+        return targets != null ? targets.length : targetView.limit();
+    }
+
+    public int outdegree(int v) {
+        validateVertex(v);
+        return end(v) - begin(v);
+    }
+
+    // edges of v are the positions begin(v) .. end(v) - 1, read them with target(i)
+    public int begin(int v) {
+        return offsets != null ? offsets[v] : offsetView.get(v);
+    }
+
+    public int end(int v) {
+        return offsets != null ? offsets[v + 1] : offsetView.get(v + 1);
+    }
+
+    public int target(int i) {
+        return targets != null ? targets[i] : targetView.get(i);
+    }
+
+    // the offsets and targets as arrays, copied out of the views of a mapped graph
+    private int[] offsetArray() {
+        if (offsets != null) return offsets;
+        int[] a = new int[V + 1];
+        offsetView.duplicate().get(a);
+        return a;
+    }
+
+    private int[] targetArray() {
+        if (targets != null) return targets;
+        int[] a = new int[targetView.limit()];
+        targetView.duplicate().get(a);
+        return a;
+    }
+
+    // copy with one more vertex V whose edges go to targets; arrays are copied, this graph is unchanged
+    CSRDigraph withVertex(int[] edges) {
+        for (int w : edges) validateVertex(w);
+
+        int E = E();
+        int[] newOffsets = Arrays.copyOf(offsetArray(), V + 2);
+        newOffsets[V + 1] = E + edges.length;
+        int[] newTargets = Arrays.copyOf(targetArray(), E + edges.length);
+        System.arraycopy(edges, 0, newTargets, E, edges.length);
+        return new CSRDigraph(V + 1, newOffsets, newTargets);
+    }
+
+    // copy with edge v -> w appended to the edges of v
+    CSRDigraph withEdge(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+
+        int[] targets = targetArray();
+        int at = end(v);
+        int[] newTargets = new int[targets.length + 1];
+        System.arraycopy(targets, 0, newTargets, 0, at);
+        newTargets[at] = w;
+        System.arraycopy(targets, at, newTargets, at + 1, targets.length - at);
+
+        int[] newOffsets = offsets != null ? offsets.clone() : offsetArray();
+        for (int x = v + 1; x <= V; x++) {
+            newOffsets[x]++;
+        }
+        return new CSRDigraph(V, newOffsets, newTargets);
+    }
+
+    // digraph with every edge reversed, edges into w keep the order of their sources
+    public CSRDigraph reverse() {
+        int E = E();
+        int[] newOffsets = new int[V + 1];
+        for (int i = 0; i < E; i++) {
+            newOffsets[target(i) + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            newOffsets[v + 1] += newOffsets[v];
+        }
+
+        int[] newTargets = new int[E];
+        int[] next = Arrays.copyOf(newOffsets, V);
+        for (int v = 0; v < V; v++) {
+            for (int i = begin(v); i < end(v); i++) {
+                newTargets[next[target(i)]++] = v;
+            }
+        }
+        return new CSRDigraph(V, newOffsets, newTargets);
+    }
+
+    // approximate heap footprint of the two arrays in bytes, 0 for views of a mapped snapshot
+    public long memoryBytes() {
+        if (offsets == null) return 0;
+        return 16L + 4L * offsets.length + 16L + 4L * targets.length;
+    }
+
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(V).append(" vertices, ").append(E()).append(" edges \n");
+
+        for (int v = 0; v < V; v++) {
+            s.append(v).append(": ");
+            for (int i = begin(v); i < end(v); i++) {
+                s.append(target(i)).append(" ");
+            }
+            s.append("\n");
+        }
+
+        return s.toString();
+    }
+
+    public static void main(String[] args) {
+        In in = new In(args[0]);
+        Digraph digraph = new Digraph(in);
+        StdOut.println(new CSRDigraph(digraph));
+    }
+}
@@ -1,49 +1,117 @@
 import edu.princeton.cs.algs4.Digraph;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+// checks in one pass that a digraph is acyclic and has exactly one vertex of outdegree zero, which then
+// is reachable from every vertex. Kahn's algorithm peels vertices nobody points to until none is left
+// (acyclic) or a cycle blocks it; no recursion, so depth is not limited by the thread stack
 public class DirectedRooted {
-    private int rootCandidate;
-    private Digraph G;
+    private final CSRDigraph G;
+    private boolean isAcyclic;
     private boolean isRooted;
-    private boolean[] marked;
+    private int root;
+
+    // number of vertices with outdegree 0, the last one seen is the root candidate
+    private int countSinks() {
+        int sinks = 0;
+        root = -1;
+        for (int v = 0; v < G.V(); v++) {
+            if (G.begin(v) == G.end(v)) {
+                sinks++;
+                root = v;
+            }
+        }
 
-    private void dfs(int v) {
-        if (!isRooted) return;
-        marked[v] = true;
+        return sinks;
+    }
 
-        // may be root
-        if (G.outdegree(v) == 0) {
-            if (rootCandidate == -1) rootCandidate = v;
-            else if (rootCandidate != v) isRooted = false;
-            return;
+    private void kahn() {
+        int[] indegree = new int[G.V()];
+        for (int i = 0; i < G.E(); i++) {
+            indegree[G.target(i)]++;
         }
 
-        for (int w : G.adj(v)) {
-            if (marked[w]) continue;
-            dfs(w);
+        int[] queue = new int[G.V()];
+        int tail = 0;
+        for (int v = 0; v < G.V(); v++) {
+            if (indegree[v] == 0) queue[tail++] = v;
         }
+
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int w = G.target(i);
+                if (--indegree[w] == 0) queue[tail++] = w;
+            }
+        }
+
+        isAcyclic = tail == G.V();
+    }
+
+    // level by level Kahn: each frontier is expanded in parallel, the last edge into a vertex
+    // (the decrement reaching 0) puts it into the next frontier
+    private void parallelKahn(ForkJoinPool pool) {
+        AtomicIntegerArray indegree = new AtomicIntegerArray(G.V());
+        pool.submit(() -> IntStream.range(0, G.V()).parallel().forEach(v -> {
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                indegree.incrementAndGet(G.target(i));
+            }
+        })).join();
+
+        int[] frontier = pool.submit(() -> IntStream.range(0, G.V()).parallel()
+                .filter(v -> indegree.get(v) == 0)
+                .toArray()).join();
+
+        long removed = 0;
+        while (frontier.length > 0) {
+            removed += frontier.length;
+            int[] current = frontier;
+            frontier = pool.submit(() -> IntStream.of(current).parallel()
+                    .flatMap(v -> IntStream.range(G.begin(v), G.end(v))
+                            .map(G::target)
+                            .filter(w -> indegree.decrementAndGet(w) == 0))
+                    .toArray()).join();
+        }
+
+        isAcyclic = removed == G.V();
     }
 
     DirectedRooted(Digraph digraph) {
+        this(digraph == null ? null : new CSRDigraph(digraph));
+    }
+
+    DirectedRooted(CSRDigraph digraph) {
+        this(digraph, null);
+    }
+
+    // pool == null validates sequentially
+    DirectedRooted(CSRDigraph digraph, ForkJoinPool pool) {
         if (digraph == null)
             throw new NullPointerException("digraph is null");
 
-        if (digraph.V() == 0) {
-            isRooted = false;
-            return;
-        }
-
-        rootCandidate = -1;
         G = digraph;
-        marked = new boolean[digraph.V()];
-        isRooted = true;
+        int sinks = countSinks();
 
-        for (int v = 0; v < digraph.V(); v++) {
-            if (marked[v]) continue;
-            dfs(v);
-        }
+        if (pool == null) kahn();
+        else parallelKahn(pool);
+
+        isRooted = isAcyclic && sinks == 1;
+        if (!isRooted) root = -1;
+    }
+
+    public boolean isAcyclic() {
+        return isAcyclic;
     }
 
+    // acyclic with a single root
     public boolean isRooted() {
         return isRooted;
     }
+
+    // the root if rooted, -1 otherwise
+    public int root() {
+        return root;
+    }
 }
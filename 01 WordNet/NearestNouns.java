@@ -0,0 +1,164 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+// k nearest nouns by ancestral distance without touching every noun: the ancestors of the source
+// (one upward search) seed a downward search over the reversed hypernym graph. seeds start at their
+// own distance and are merged into the FIFO queue in distance order, so synsets are settled in order
+// of distance and their nouns are final the moment they are seen; the search stops at k nouns
+public class NearestNouns {
+    private final CSRDigraph hyponyms;
+    private final NounIndex nouns;
+
+    // nouns of synset v are synsetNouns[nounOffsets[v] .. nounOffsets[v + 1]), ascending ids
+    private final int[] nounOffsets;
+    private final int[] synsetNouns;
+
+    // shared by all instances so successive versions of a WordNet reuse one per thread
+    private static final ThreadLocal<Workspace> WORKSPACES = ThreadLocal.withInitial(Workspace::new);
+
+    // per-thread search state, synset v is reached iff reached[v] == epoch and settled iff
+    // settled[v] == epoch, noun id is reported iff reported[id] == epoch
+    private static final class Workspace {
+        int[] reached = new int[0];
+        int[] settled = new int[0];
+        int[] reported = new int[0];
+        int epoch;
+
+        int[] dist = new int[0];
+        int[] queue = new int[0];
+
+        // seeds packed as distance << 32 | vertex
+        long[] seeds = new long[0];
+
+        private Workspace prepare(int V, int nounCount) {
+            if (reached.length < V) {
+                int capacity = Math.max(V, reached.length + (reached.length >> 3));
+                reached = Arrays.copyOf(reached, capacity);
+                settled = Arrays.copyOf(settled, capacity);
+                dist = new int[capacity];
+                queue = new int[capacity];
+            }
+            if (reported.length < nounCount) {
+                reported = Arrays.copyOf(reported, Math.max(nounCount, reported.length + (reported.length >> 3)));
+            }
+
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(reached, 0);
+                Arrays.fill(settled, 0);
+                Arrays.fill(reported, 0);
+                epoch = 0;
+            }
+            epoch++;
+            return this;
+        }
+    }
+
+    NearestNouns(CSRDigraph graph, NounIndex nouns) {
+        if (graph == null) throw new IllegalArgumentException("graph is null");
+        if (nouns == null) throw new IllegalArgumentException("nouns is null");
+
+        this.hyponyms = graph.reverse();
+        this.nouns = nouns;
+
+        // invert the postings, counting sort by synset
+        int V = graph.V();
+        nounOffsets = new int[V + 1];
+        for (int id = 0; id < nouns.size(); id++) {
+            for (int i = nouns.begin(id); i < nouns.end(id); i++) {
+                nounOffsets[nouns.posting(i) + 1]++;
+            }
+        }
+        for (int v = 0; v < V; v++) {
+            nounOffsets[v + 1] += nounOffsets[v];
+        }
+
+        synsetNouns = new int[nounOffsets[V]];
+        int[] next = Arrays.copyOf(nounOffsets, V);
+        for (int id = 0; id < nouns.size(); id++) {
+            for (int i = nouns.begin(id); i < nouns.end(id); i++) {
+                synsetNouns[next[nouns.posting(i)]++] = id;
+            }
+        }
+    }
+
+    // ids of the k nouns nearest to noun source, whose synsets have the given ancestors, nearest first.
+    // source itself is left out, nouns at equal distance come in search order
+    int[] nearest(SAP.Ancestors ancestors, int source, int k) {
+        if (k < 0) throw new IllegalArgumentException("k is negative");
+
+        Workspace ws = WORKSPACES.get().prepare(hyponyms.V(), nouns.size());
+        int epoch = ws.epoch;
+        int[] reached = ws.reached;
+        int[] settled = ws.settled;
+        int[] dist = ws.dist;
+        int[] queue = ws.queue;
+
+        int n = ancestors.size();
+        if (ws.seeds.length < n) ws.seeds = new long[n];
+        long[] seeds = ws.seeds;
+        for (int i = 0; i < n; i++) {
+            int v = ancestors.vertex(i);
+            seeds[i] = (long) ancestors.distance(i) << 32 | v;
+            reached[v] = epoch;
+            dist[v] = ancestors.distance(i);
+        }
+        Arrays.sort(seeds, 0, n);
+
+        int[] result = new int[Math.min(k, nouns.size())];
+        int count = 0;
+        ws.reported[source] = epoch;
+
+        int head = 0;
+        int tail = 0;
+        int seed = 0;
+        while (count < result.length && (head < tail || seed < n)) {
+            // queued synsets are enqueued in nondecreasing distance and never improved afterwards,
+            // so comparing the two heads yields synsets in distance order
+            int v;
+            if (seed < n && (head == tail || (int) (seeds[seed] >>> 32) <= dist[queue[head]])) {
+                v = (int) seeds[seed++];
+            } else {
+                v = queue[head++];
+            }
+            if (settled[v] == epoch) continue;
+            settled[v] = epoch;
+
+            for (int i = nounOffsets[v]; i < nounOffsets[v + 1] && count < result.length; i++) {
+                int id = synsetNouns[i];
+                if (ws.reported[id] == epoch) continue;
+                ws.reported[id] = epoch;
+                result[count++] = id;
+            }
+
+            int d = dist[v] + 1;
+            for (int i = hyponyms.begin(v); i < hyponyms.end(v); i++) {
+                int w = hyponyms.target(i);
+                if (settled[w] == epoch || (reached[w] == epoch && dist[w] <= d)) continue;
+                reached[w] = epoch;
+                dist[w] = d;
+                queue[tail++] = w;
+            }
+        }
+
+        return count == result.length ? result : Arrays.copyOf(result, count);
+    }
+
+    // approximate heap footprint in bytes, the noun index is not counted
+    public long memoryBytes() {
+        return hyponyms.memoryBytes() + 16L + 4L * nounOffsets.length + 16L + 4L * synsetNouns.length;
+    }
+
+    public static void main(String[] args) {
+        WordNet wordnet = new WordNet(args[0], args[1]);
+        int k = Integer.parseInt(args[2]);
+
+        for (int i = 3; i < args.length; i++) {
+            StdOut.print(args[i] + ":");
+            for (String noun : wordnet.nearest(args[i], k)) {
+                StdOut.print(" " + noun + "(" + wordnet.distance(args[i], noun) + ")");
+            }
+            StdOut.println();
+        }
+    }
+}
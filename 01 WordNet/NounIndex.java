@@ -0,0 +1,258 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.Arrays;
+
+// open-addressing dictionary noun -> synsets. synsets of noun id are postings[offsets[id] .. offsets[id + 1]),
+// one int array shared by all nouns, so a lookup is one probe sequence and a membership costs 4 bytes.
+// an index over a mapped snapshot instead reads the snapshot's sorted noun table in place and finds
+// a noun by binary search, nothing is decoded or hashed up front
+public class NounIndex {
+    private final int size;
+
+    private final String[] nouns;
+    private final int[] offsets;
+    private final int[] postings;
+
+    // noun id + 1 by slot, 0 marks an empty slot, at most half full
+    private final int[] table;
+
+    // set instead of the arrays above for a mapped index: noun id is nounBytes[nounOffsets[id] ..
+    // nounOffsets[id + 1]), ids ascending by unsigned UTF-8 bytes
+    private final ByteBuffer nounBytes;
+    private final IntBuffer nounOffsets;
+    private final IntBuffer offsetView;
+    private final IntBuffer postingView;
+
+    private static int spread(int hash) {
+        return hash ^ (hash >>> 16);
+    }
+
+    // nouns must be distinct, the arrays are not copied and must not change afterwards
+    NounIndex(String[] nouns, int[] offsets, int[] postings) {
+        if (offsets.length != nouns.length + 1 || offsets[nouns.length] != postings.length)
+            throw new IllegalArgumentException("offsets do not match postings");
+
+        this.size = nouns.length;
+        this.nouns = nouns;
+        this.offsets = offsets;
+        this.postings = postings;
+        this.nounBytes = null;
+        this.nounOffsets = null;
+        this.offsetView = null;
+        this.postingView = null;
+
+        int capacity = 2;
+        while (capacity < 2 * nouns.length) capacity *= 2;
+        table = new int[capacity];
+        insert(0, nouns.length);
+    }
+
+    // index over views of a mapped snapshot: nouns sorted by unsigned UTF-8 bytes and distinct, offsets
+    // into nounBytes and into postings, none of which may change afterwards
+    NounIndex(ByteBuffer nounBytes, IntBuffer nounOffsets, IntBuffer offsets, IntBuffer postings) {
+        if (nounOffsets.limit() != offsets.limit() || offsets.get(offsets.limit() - 1) != postings.limit())
+            throw new IllegalArgumentException("offsets do not match postings");
+
+        this.size = offsets.limit() - 1;
+        this.nouns = null;
+        this.offsets = null;
+        this.postings = null;
+        this.table = null;
+        this.nounBytes = nounBytes;
+        this.nounOffsets = nounOffsets;
+        this.offsetView = offsets;
+        this.postingView = postings;
+    }
+
+    // index with nouns added after the existing ones and new postings, this index is unchanged
+    private NounIndex(NounIndex that, String[] added, int[] offsets, int[] postings) {
+        this.size = that.nouns.length + added.length;
+        this.nouns = Arrays.copyOf(that.nouns, size);
+        System.arraycopy(added, 0, nouns, that.nouns.length, added.length);
+        this.offsets = offsets;
+        this.postings = postings;
+        this.nounBytes = null;
+        this.nounOffsets = null;
+        this.offsetView = null;
+        this.postingView = null;
+
+        if (2 * nouns.length <= that.table.length) {
+            table = that.table.clone();
+            insert(that.nouns.length, nouns.length);
+        } else {
+            int capacity = that.table.length;
+            while (capacity < 2 * nouns.length) capacity *= 2;
+            table = new int[capacity];
+            insert(0, nouns.length);
+        }
+    }
+
+    // put ids from .. to - 1 into the table
+    private void insert(int from, int to) {
+        int mask = table.length - 1;
+        for (int id = from; id < to; id++) {
+            int slot = spread(nouns[id].hashCode()) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    // copy with nouns appended, offsets and postings covering old and new nouns; a mapped index
+    // is decoded into a hashed one first, as its sort order does not hold for the appended nouns
+    NounIndex withNouns(String[] added, int[] offsets, int[] postings) {
+        if (offsets.length != size + added.length + 1 || offsets[offsets.length - 1] != postings.length)
+            throw new IllegalArgumentException("offsets do not match postings");
+
+        if (nouns == null) {
+            String[] all = new String[size + added.length];
+            for (int id = 0; id < size; id++) {
+                all[id] = noun(id);
+            }
+            System.arraycopy(added, 0, all, size, added.length);
+            return new NounIndex(all, offsets, postings);
+        }
+
+        return new NounIndex(this, added, offsets, postings);
+    }
+
+    // number of nouns
+    public int size() {
+        return size;
+    }
+
+    // unsigned comparison of the bytes of noun id with key
+    private int compare(int id, byte[] key) {
+        int from = nounOffsets.get(id);
+        int length = nounOffsets.get(id + 1) - from;
+        for (int i = 0; i < length && i < key.length; i++) {
+            int cmp = Integer.compare(nounBytes.get(from + i) & 0xff, key[i] & 0xff);
+            if (cmp != 0) return cmp;
+        }
+
+        return Integer.compare(length, key.length);
+    }
+
+    // id of the noun, -1 if it is not in the index
+    public int id(String noun) {
+        if (noun == null) throw new IllegalArgumentException("noun is null");
+
+        if (nouns == null) {
+            byte[] key = noun.getBytes(StandardCharsets.UTF_8);
+            int lo = 0;
+            int hi = size - 1;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                int cmp = compare(mid, key);
+                if (cmp < 0) lo = mid + 1;
+                else if (cmp > 0) hi = mid - 1;
+                else return mid;
+            }
+
+            return -1;
+        }
+
+        int mask = table.length - 1;
+        int slot = spread(noun.hashCode()) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (nouns[id].equals(noun)) return id;
+            slot = (slot + 1) & mask;
+        }
+
+        return -1;
+    }
+
+    public boolean contains(String noun) {
+        return id(noun) >= 0;
+    }
+
+    // the noun, decoded on each call for a mapped index
+    public String noun(int id) {
+        if (nouns != null) return nouns[id];
+
+        int from = nounOffsets.get(id);
+        byte[] bytes = new byte[nounOffsets.get(id + 1) - from];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = nounBytes.get(from + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // synsets of noun id are the positions begin(id) .. end(id) - 1, read them with posting(i)
+    public int begin(int id) {
+        return offsets != null ? offsets[id] : offsetView.get(id);
+    }
+
+    public int end(int id) {
+        return offsets != null ? offsets[id + 1] : offsetView.get(id + 1);
+    }
+
+    public int posting(int i) {
+        return postings != null ? postings[i] : postingView.get(i);
+    }
+
+    // copy the synsets of noun id to the front of into, grown if too small, for the array range
+    // overloads of SAP; returns the array holding them
+    int[] postings(int id, int[] into) {
+        int from = begin(id);
+        int count = end(id) - from;
+        if (into.length < count) into = new int[Math.max(count, 2 * into.length)];
+        if (postings != null) {
+            System.arraycopy(postings, from, into, 0, count);
+        } else {
+            for (int i = 0; i < count; i++) {
+                into[i] = postingView.get(from + i);
+            }
+        }
+
+        return into;
+    }
+
+    // all nouns in id order
+    public Iterable<String> nouns() {
+        return new AbstractList<String>() {
+            public String get(int id) {
+                if (id < 0 || id >= size) throw new IndexOutOfBoundsException("noun " + id);
+                return noun(id);
+            }
+
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    // approximate heap footprint in bytes, counting each noun as a compact (Latin-1) string;
+    // a mapped index holds no arrays of its own
+    public long memoryBytes() {
+        if (nouns == null) return 0;
+
+        long bytes = 16L + 4L * table.length + 16L + 4L * offsets.length + 16L + 4L * postings.length
+                + 16L + 4L * nouns.length;
+        for (String noun : nouns) {
+            bytes += 24 + 16 + ((noun.length() + 7) & ~7);
+        }
+
+        return bytes;
+    }
+
+    public static void main(String[] args) {
+        NounIndex index = WordNetLoader.load(args[0], args[1]).nouns();
+        StdOut.println("nouns: " + index.size() + ", bytes: " + index.memoryBytes());
+
+        for (int i = 2; i < args.length; i++) {
+            int id = index.id(args[i]);
+            StdOut.print(args[i] + ":");
+            if (id >= 0) {
+                for (int j = index.begin(id); j < index.end(id); j++) {
+                    StdOut.print(" " + index.posting(j));
+                }
+            }
+            StdOut.println();
+        }
+    }
+}
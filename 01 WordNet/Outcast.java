@@ -2,37 +2,79 @@ import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class Outcast {
     private final WordNet wordNet;
 
+    // pool used to split the distance sums, null for sequential mode
+    private final ForkJoinPool pool;
+
     // constructor takes a WordNet object
     public Outcast(WordNet wordnet) {
+        this(wordnet, null);
+    }
+
+    // parallel mode: searches and distance sums run as fork-join tasks in the given pool
+    public Outcast(WordNet wordnet, ForkJoinPool pool) {
         this.wordNet = wordnet;
+        this.pool = pool;
+    }
+
+    // index of maximum distance sum, lowest index wins ties
+    private static int argMax(int[] distance) {
+        int max = Integer.MIN_VALUE;
+        int maxIndex = -1;
+        for (int i = 0; i < distance.length; i++) {
+            if (distance[i] > max) {
+                max = distance[i];
+                maxIndex = i;
+            }
+        }
+
+        return maxIndex;
+    }
+
+    // one search per noun, then every row sum is an independent task over the shared ancestor lists,
+    // no n * n matrix is materialized
+    private int[] parallelDistances(String[] nouns) {
+        SAP.Ancestors[] ancestors = pool.submit(() -> IntStream.range(0, nouns.length)
+                .parallel()
+                .mapToObj(i -> wordNet.ancestors(nouns[i]))
+                .toArray(SAP.Ancestors[]::new)).join();
+
+        return pool.submit(() -> IntStream.range(0, nouns.length)
+                .parallel()
+                .map(i -> {
+                    int sum = 0;
+                    for (int j = 0; j < nouns.length; j++) {
+                        if (i != j) sum += ancestors[i].length(ancestors[j]);
+                    }
+                    return sum;
+                })
+                .toArray()).join();
     }
 
     // given an array of WordNet nouns, return an outcast
     public String outcast(String[] nouns) {
+        if (pool != null) {
+            return nouns[argMax(parallelDistances(nouns))];
+        }
+
         int[] distance = new int[nouns.length];
         Arrays.fill(distance, 0);
 
+        // one search per noun instead of one per ordered pair
+        int[][] matrix = wordNet.distanceMatrix(nouns);
         for (int i = 0; i < nouns.length; i++) {
             for (int j = 0; j < nouns.length; j++) {
                 if (i == j) continue;
-                distance[i] += wordNet.distance(nouns[i], nouns[j]);
-            }
-        }
-
-        int max = Integer.MIN_VALUE;
-        int maxIndex = -1;
-        for (int i = 0; i < nouns.length; i++) {
-            if (distance[i] > max) {
-                max = distance[i];
-                maxIndex = i;
+                distance[i] += matrix[i][j];
             }
         }
 
-        return nouns[maxIndex];
+        return nouns[argMax(distance)];
     }
 
     // see test client below
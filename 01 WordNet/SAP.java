@@ -3,171 +3,445 @@ import edu.princeton.cs.algs4.StdIn;
 import edu.princeton.cs.algs4.StdOut;
 import edu.princeton.cs.algs4.In;
 
-import edu.princeton.cs.algs4.Queue;
-
-import java.util.ArrayList;
 import java.util.Arrays;
 
 
 public class SAP {
-    private static final boolean UNVISITED = false;
-    private static final boolean VISITED = true;
+    private static Digraph checkNotNull(Digraph graph) {
+        if (graph == null) throw new IllegalArgumentException("graph == null");
+        return graph;
+    }
 
-    // helper class to return two value from function call
-    private static class Pair {
-        public int first;
-        public int second;
+    private final CSRDigraph G;
 
-        public Pair(int x, int y) {
-            this.first = x;
-            this.second = y;
-        }
-    }
+    // search both sides in lockstep and stop early (default), or run two full BFS
+    private volatile boolean bidirectional;
 
-    private static Digraph copy(Digraph digraph) {
-        Digraph newDigraph = new Digraph(digraph.V());
-        for (int v = 0; v < digraph.V(); v++) {
-            for (int w : digraph.adj(v)) {
-                newDigraph.addEdge(v, w);
-            }
+    private final ThreadLocal<Workspace> workspaces;
+
+    // all ancestors of a vertex set with their BFS distance, sorted by vertex, so the ancestral
+    // distance between two sets is a merge of their lists instead of a new search
+    public static final class Ancestors {
+        private final int[] vertices;
+        private final int[] dist;
+
+        Ancestors(int[] vertices, int[] dist) {
+            this.vertices = vertices;
+            this.dist = dist;
         }
 
-        return newDigraph;
-    }
+        public int size() {
+            return vertices.length;
+        }
 
-    private static void clean(int[] distTo, ArrayList<Integer> cleaner) {
-        for (Integer v : cleaner){
-            distTo[v] = -1;
+        // i-th ancestor in vertex order and its distance
+        int vertex(int i) {
+            return vertices[i];
         }
 
-        cleaner.clear();
-    }
+        int distance(int i) {
+            return dist[i];
+        }
 
-    private final Digraph G;
-    private final boolean[] marked;
-    private final Queue<Integer> queue;
-    private final int[] distToA;
-    private final int[] distToB;
+        // length of shortest ancestral path to the other set; -1 if no such path
+        public int length(Ancestors that) {
+            int length = Integer.MAX_VALUE;
+            int i = 0;
+            int j = 0;
+
+            while (i < vertices.length && j < that.vertices.length) {
+                if (vertices[i] < that.vertices[j]) i++;
+                else if (vertices[i] > that.vertices[j]) j++;
+                else {
+                    length = Math.min(length, dist[i] + that.dist[j]);
+                    i++;
+                    j++;
+                }
+            }
 
-    // helper container to transfer parameter
-    private final ArrayList<Integer> listA;
-    private final ArrayList<Integer> listB;
+            return length == Integer.MAX_VALUE ? -1 : length;
+        }
+    }
 
-    // helper container to re-initialize dist array
-    private final ArrayList<Integer> cleanerA;
-    private final ArrayList<Integer> cleanerB;
+    private void validateVertex(int v) {
+        if (v < 0 || v >= G.V()) {
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (G.V() - 1));
+        }
+    }
 
-    private void validateVertexSet(Iterable<Integer> set) {
+    private void validateRange(int[] set, int from, int to) {
         if (set == null) {
             throw new IllegalArgumentException("vertex set is null");
         }
+        if (from < 0 || to > set.length || from > to) {
+            throw new IllegalArgumentException("range [" + from + ", " + to + ") is not within 0 and " + set.length);
+        }
+        for (int i = from; i < to; i++) {
+            validateVertex(set[i]);
+        }
+    }
 
-        for (Integer v : set) {
-            if (v == null || v < 0 || v >= G.V()){
+    // per-thread search state, so one SAP (and one WordNet) can serve concurrent queries. not tied to
+    // one SAP: a SAP derived from another for an updated graph shares it, and it grows with the graph
+    private static final class Workspace {
+        // graph and mode of the SAP running the current query
+        CSRDigraph G;
+        boolean bidirectional;
+
+        // vertex v is reached from set A in the current query iff stampA[v] == epoch,
+        // so starting a new query is a single counter increment instead of a cleanup pass
+        int[] stampA;
+        int[] stampB;
+        int epoch;
+
+        int[] distToA;
+        int[] distToB;
+
+        // preallocated BFS queues, every vertex is enqueued at most once per search so after
+        // a search queue[0..size) is also the list of vertices reached, in BFS order
+        int[] queueA;
+        int[] queueB;
+        int sizeA;
+        int sizeB;
+
+        // helper container to transfer parameter, grown on demand and then reused
+        int[] setA;
+        int[] setB;
+
+        // best length found so far by the running lockstep search
+        int bestLength;
+
+        // result of last query
+        int resultLength;
+        int resultAncestor;
+
+        Workspace() {
+            stampA = new int[0];
+            stampB = new int[0];
+            epoch = 0;
+            distToA = new int[0];
+            distToB = new int[0];
+            queueA = new int[0];
+            queueB = new int[0];
+            setA = new int[1];
+            setB = new int[1];
+        }
+
+        // bind to the SAP about to run a query, growing the arrays if its graph is larger;
+        // old stamps stay below the next epoch, so grown arrays need no reset
+        private Workspace prepare(SAP sap) {
+            G = sap.G;
+            bidirectional = sap.bidirectional;
+
+            if (stampA.length < G.V()) {
+                int capacity = Math.max(G.V(), stampA.length + (stampA.length >> 3));
+                stampA = Arrays.copyOf(stampA, capacity);
+                stampB = Arrays.copyOf(stampB, capacity);
+                distToA = new int[capacity];
+                distToB = new int[capacity];
+                queueA = new int[capacity];
+                queueB = new int[capacity];
+            }
+
+            return this;
+        }
+
+        private void validateVertex(int v) {
+            if (v < 0 || v >= G.V()) {
                 throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (G.V() - 1));
             }
         }
-    }
 
-    private void bfs(Iterable<Integer> initSet, int[] distTo, ArrayList<Integer> cleaner) {
-        for (int v : initSet) {
-            queue.enqueue(v);
-            marked[v] = VISITED;
-            distTo[v] = 0;
-            cleaner.add(v);
+        // copy and validate vertex set into setA (first) or setB, growing it if needed, returns set size
+        private int loadSet(Iterable<Integer> set, boolean first) {
+            if (set == null) {
+                throw new IllegalArgumentException("vertex set is null");
+            }
+
+            int[] target = first ? setA : setB;
+            int n = 0;
+            for (Integer v : set) {
+                if (v == null) {
+                    throw new IllegalArgumentException("vertex null is not between 0 and " + (G.V() - 1));
+                }
+                validateVertex(v);
+
+                if (n == target.length) target = Arrays.copyOf(target, 2 * n);
+                target[n++] = v;
+            }
+
+            if (first) setA = target;
+            else setB = target;
+            return n;
         }
 
-        while (!queue.isEmpty()) {
-            int v = queue.dequeue();
+        private void nextEpoch() {
+            if (epoch == Integer.MAX_VALUE) {
+                Arrays.fill(stampA, 0);
+                Arrays.fill(stampB, 0);
+                epoch = 0;
+            }
+            epoch++;
+        }
 
-            for (int w : G.adj(v)) {
-                if (marked[w] == VISITED) continue;
-                marked[w] = VISITED;
-                distTo[w] = distTo[v] + 1;
-                cleaner.add(w);
-                queue.enqueue(w);
+        // full BFS from init[from .. to), returns number of vertices reached
+        private int bfs(int[] init, int from, int to, int[] stamp, int[] distTo, int[] queue) {
+            int head = 0;
+            int tail = seed(init, from, to, stamp, distTo, queue);
+
+            while (head < tail) {
+                int v = queue[head++];
+
+                for (int i = G.begin(v); i < G.end(v); i++) {
+                    int w = G.target(i);
+                    if (stamp[w] == epoch) continue;
+                    stamp[w] = epoch;
+                    distTo[w] = distTo[v] + 1;
+                    queue[tail++] = w;
+                }
             }
+
+            return tail;
         }
 
-        for (int v : cleaner) {
-            marked[v] = UNVISITED;
+        // enqueue init[from .. to) at distance 0, returns queue size
+        private int seed(int[] init, int from, int to, int[] stamp, int[] distTo, int[] queue) {
+            int tail = 0;
+            for (int i = from; i < to; i++) {
+                int v = init[i];
+                if (stamp[v] == epoch) continue;
+                stamp[v] = epoch;
+                distTo[v] = 0;
+                queue[tail++] = v;
+            }
+
+            return tail;
         }
-    }
 
-    private Pair ancestorImpl(Iterable<Integer> setA, Iterable<Integer> setB) {
-        validateVertexSet(setA);
-        validateVertexSet(setB);
+        // expand queue[head..end) one level, returns new tail; best length found so far is updated through
+        // vertices the other side has already reached
+        private int expand(int head, int end, int tail, int depth,
+                           int[] stamp, int[] distTo, int[] queue, int[] otherStamp, int[] otherDistTo) {
+            for (int k = head; k < end; k++) {
+                int v = queue[k];
+
+                for (int i = G.begin(v); i < G.end(v); i++) {
+                    int w = G.target(i);
+                    if (stamp[w] == epoch) continue;
+                    stamp[w] = epoch;
+                    distTo[w] = depth + 1;
+                    queue[tail++] = w;
+
+                    if (otherStamp[w] == epoch && depth + 1 + otherDistTo[w] < bestLength) {
+                        bestLength = depth + 1 + otherDistTo[w];
+                    }
+                }
+            }
 
-        bfs(setA, distToA, cleanerA);
-        bfs(setB, distToB, cleanerB);
+            return tail;
+        }
+
+        // alternating level-by-level BFS, always expanding the smaller frontier. a side stops once its next
+        // level lies beyond the best length found, so every vertex whose total could still tie the best is
+        // reached from both sides and A's visit list stays a prefix of its full BFS order
+        private void lockstep(int[] initA, int fromA, int toA, int[] initB, int fromB, int toB) {
+            int tailA = seed(initA, fromA, toA, stampA, distToA, queueA);
+            int tailB = seed(initB, fromB, toB, stampB, distToB, queueB);
 
-        Pair p = new Pair(-1, Integer.MAX_VALUE);
+            bestLength = Integer.MAX_VALUE;
+            for (int i = 0; i < tailB; i++) {
+                if (stampA[queueB[i]] == epoch) bestLength = 0;
+            }
 
-        for (int v: cleanerA) {
-            if (distToA[v] > -1 && distToB[v] > -1 && distToA[v] + distToB[v] < p.second) {
-                p.first = v;
-                p.second = distToA[v] + distToB[v];
+            int headA = 0;
+            int headB = 0;
+            int depthA = 0;
+            int depthB = 0;
+
+            while (true) {
+                boolean canA = headA < tailA && depthA < bestLength;
+                boolean canB = headB < tailB && depthB < bestLength;
+                if (!canA && !canB) break;
+
+                if (canA && (!canB || tailA - headA <= tailB - headB)) {
+                    int end = tailA;
+                    tailA = expand(headA, end, tailA, depthA, stampA, distToA, queueA, stampB, distToB);
+                    headA = end;
+                    depthA++;
+                } else {
+                    int end = tailB;
+                    tailB = expand(headB, end, tailB, depthB, stampB, distToB, queueB, stampA, distToA);
+                    headB = end;
+                    depthB++;
+                }
             }
+
+            sizeA = tailA;
+            sizeB = tailB;
         }
 
-        for (int v: cleanerB) {
-            if (distToA[v] > -1 && distToB[v] > -1 && distToA[v] + distToB[v] < p.second) {
-                p.first = v;
-                p.second = distToA[v] + distToB[v];
+        private void ancestorImpl(int[] initA, int fromA, int toA, int[] initB, int fromB, int toB) {
+            nextEpoch();
+            if (bidirectional) {
+                lockstep(initA, fromA, toA, initB, fromB, toB);
+            } else {
+                sizeA = bfs(initA, fromA, toA, stampA, distToA, queueA);
+                sizeB = bfs(initB, fromB, toB, stampB, distToB, queueB);
+            }
+
+            int length = Integer.MAX_VALUE;
+            int ancestor = -1;
+
+            // every common vertex is reached from both sets, scanning A's visit list is enough
+            for (int i = 0; i < sizeA; i++) {
+                int v = queueA[i];
+                if (stampB[v] == epoch && distToA[v] + distToB[v] < length) {
+                    ancestor = v;
+                    length = distToA[v] + distToB[v];
+                }
             }
+
+            resultAncestor = ancestor;
+            resultLength = length == Integer.MAX_VALUE ? -1 : length;
         }
 
-        clean(distToA, cleanerA);
-        clean(distToB, cleanerB);
+        // one full BFS from set[from .. to), reached vertices sorted by index
+        private Ancestors ancestors(int[] set, int from, int to) {
+            nextEpoch();
+            sizeA = bfs(set, from, to, stampA, distToA, queueA);
+            sizeB = 0;
+
+            int[] vertices = Arrays.copyOf(queueA, sizeA);
+            Arrays.sort(vertices);
+            int[] dist = new int[sizeA];
+            for (int i = 0; i < sizeA; i++) {
+                dist[i] = distToA[vertices[i]];
+            }
 
-        if (p.second == Integer.MAX_VALUE) p.second = -1;
+            return new Ancestors(vertices, dist);
+        }
 
-        return p;
+        private void ancestorImpl(int v, int w) {
+            validateVertex(v);
+            validateVertex(w);
+            setA[0] = v;
+            setB[0] = w;
+            ancestorImpl(setA, 0, 1, setB, 0, 1);
+        }
+
+        private void ancestorImpl(Iterable<Integer> a, Iterable<Integer> b) {
+            int countA = loadSet(a, true);
+            int countB = loadSet(b, false);
+            ancestorImpl(setA, 0, countA, setB, 0, countB);
+        }
     }
 
     // constructor takes a digraph (not necessarily a DAG)
     public SAP(Digraph graph) {
+        this(new CSRDigraph(checkNotNull(graph)));
+    }
+
+    // run directly on an immutable CSR graph, which can be shared
+    public SAP(CSRDigraph graph) {
+        if (graph == null) throw new IllegalArgumentException("graph == null");
+
+        G = graph;
+        bidirectional = true;
+        workspaces = ThreadLocal.withInitial(Workspace::new);
+    }
+
+    // SAP for an updated version of previous's graph, reusing its per-thread search state
+    SAP(SAP previous, CSRDigraph graph) {
         if (graph == null) throw new IllegalArgumentException("graph == null");
 
-        G = copy(graph);
-        marked = new boolean[G.V()];
-        distToA = new int[G.V()];
-        Arrays.fill(distToA, -1);
-        distToB = new int[G.V()];
-        Arrays.fill(distToB, -1);
-        queue = new Queue<>();
-        listA = new ArrayList<>();
-        listB = new ArrayList<>();
-        cleanerA = new ArrayList<>();
-        cleanerB = new ArrayList<>();
+        G = graph;
+        bidirectional = previous.bidirectional;
+        workspaces = previous.workspaces;
+    }
+
+    // search state of the calling thread, bound to this SAP
+    private Workspace workspace() {
+        return workspaces.get().prepare(this);
+    }
+
+    // switch between lockstep search and two full BFS, for benchmarking
+    void setBidirectional(boolean bidirectional) {
+        this.bidirectional = bidirectional;
+    }
+
+    // length of the calling thread's last query, so length and ancestor can be read after one search
+    int lastLength() {
+        return workspaces.get().resultLength;
+    }
+
+    // ancestor of the calling thread's last query
+    int lastAncestor() {
+        return workspaces.get().resultAncestor;
+    }
+
+    // number of vertices reached by the calling thread's last query
+    int lastTouched() {
+        Workspace ws = workspaces.get();
+        return ws.sizeA + ws.sizeB;
     }
 
     // length of shortest ancestral path between v and w; -1 if no such path
     public int length(int v, int w) {
-        listA.clear();
-        listA.add(v);
-        listB.clear();
-        listB.add(w);
-        return ancestorImpl(listA, listB).second;
+        Workspace ws = workspace();
+        ws.ancestorImpl(v, w);
+        return ws.resultLength;
     }
 
     // a common ancestor of v and w that participates in a shortest ancestral path; -1 if no such path
     public int ancestor(int v, int w) {
-        listA.clear();
-        listA.add(v);
-        listB.clear();
-        listB.add(w);
-        return ancestorImpl(listA, listB).first;
+        Workspace ws = workspace();
+        ws.ancestorImpl(v, w);
+        return ws.resultAncestor;
     }
 
     // length of shortest ancestral path between any vertex in v and any vertex in w; -1 if no such path
     public int length(Iterable<Integer> setA, Iterable<Integer> setB) {
-        return ancestorImpl(setA, setB).second;
+        Workspace ws = workspace();
+        ws.ancestorImpl(setA, setB);
+        return ws.resultLength;
     }
 
     // a common ancestor that participates in shortest ancestral path; -1 if no such path
     public int ancestor(Iterable<Integer> setA, Iterable<Integer> setB) {
-        return ancestorImpl(setA, setB).first;
+        Workspace ws = workspace();
+        ws.ancestorImpl(setA, setB);
+        return ws.resultAncestor;
+    }
+
+    // every ancestor of the vertex set with its distance, reusable across many length queries
+    public Ancestors ancestors(Iterable<Integer> set) {
+        Workspace ws = workspace();
+        int count = ws.loadSet(set, true);
+        return ws.ancestors(ws.setA, 0, count);
+    }
+
+    // the overloads below take vertex sets as array ranges set[from .. to), e.g. noun postings,
+    // so callers holding primitive sets need no boxing
+
+    public int length(int[] setA, int fromA, int toA, int[] setB, int fromB, int toB) {
+        validateRange(setA, fromA, toA);
+        validateRange(setB, fromB, toB);
+        Workspace ws = workspace();
+        ws.ancestorImpl(setA, fromA, toA, setB, fromB, toB);
+        return ws.resultLength;
+    }
+
+    public int ancestor(int[] setA, int fromA, int toA, int[] setB, int fromB, int toB) {
+        validateRange(setA, fromA, toA);
+        validateRange(setB, fromB, toB);
+        Workspace ws = workspace();
+        ws.ancestorImpl(setA, fromA, toA, setB, fromB, toB);
+        return ws.resultAncestor;
+    }
+
+    public Ancestors ancestors(int[] set, int from, int to) {
+        validateRange(set, from, to);
+        return workspace().ancestors(set, from, to);
     }
 
     // do unit testing of this class
@@ -0,0 +1,201 @@
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Predicate;
+
+// bounded LRU cache of shortest ancestral path results keyed by an unordered noun pair, safe to share
+// between threads: pairs are spread by hash over independently locked segments and the counters are
+// lock-free, so concurrent queries only meet when they hit the same segment. a capacity of 0 disables
+// caching but still counts misses
+public class SAPCache {
+    // length and ancestor synset of one query
+    public static final class Result {
+        private final int length;
+        private final int ancestor;
+
+        Result(int length, int ancestor) {
+            this.length = length;
+            this.ancestor = ancestor;
+        }
+
+        public int length() {
+            return length;
+        }
+
+        public int ancestor() {
+            return ancestor;
+        }
+    }
+
+    // (a, b) and (b, a) are the same key
+    private static final class Pair {
+        private final String first;
+        private final String second;
+
+        Pair(String a, String b) {
+            if (a.compareTo(b) <= 0) {
+                first = a;
+                second = b;
+            } else {
+                first = b;
+                second = a;
+            }
+        }
+
+        public boolean equals(Object other) {
+            if (this == other) return true;
+            if (!(other instanceof Pair)) return false;
+            Pair that = (Pair) other;
+            return first.equals(that.first) && second.equals(that.second);
+        }
+
+        public int hashCode() {
+            return 31 * first.hashCode() + second.hashCode();
+        }
+    }
+
+    private static final int MAX_SEGMENTS = 16;
+
+    // one independently locked LRU map; a pair always lives in the segment its hash picks
+    private final class Segment {
+        private final LinkedHashMap<Pair, Result> results;
+
+        // bumped by every invalidation, so results computed before it can be refused; written under
+        // the segment lock, read without it
+        private volatile long generation;
+
+        // results.size(), so size() needs no lock
+        private volatile int size;
+
+        Segment(int capacity) {
+            // access order turns insertion ordered map into LRU
+            results = new LinkedHashMap<Pair, Result>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Pair, Result> eldest) {
+                    if (size() <= capacity) return false;
+                    evictions.increment();
+                    return true;
+                }
+            };
+        }
+
+        synchronized Result get(Pair pair) {
+            return results.get(pair);
+        }
+
+        synchronized void put(Pair pair, Result result, long generation) {
+            if (generation != this.generation) return;
+            results.put(pair, result);
+            size = results.size();
+        }
+
+        synchronized int invalidate(Predicate<String> affected) {
+            generation++;
+            int before = results.size();
+            results.keySet().removeIf(pair -> affected.test(pair.first) || affected.test(pair.second));
+            size = results.size();
+            return before - size;
+        }
+    }
+
+    private final int capacity;
+
+    // a power of two, each segment holds about capacity / segments.length pairs, so eviction is LRU
+    // within a segment only; queries on different segments never wait for each other
+    private final Segment[] segments;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public SAPCache(int capacity) {
+        if (capacity < 0) throw new IllegalArgumentException("capacity is negative");
+
+        this.capacity = capacity;
+
+        int count = 1;
+        while (2 * count <= Math.min(MAX_SEGMENTS, capacity)) count *= 2;
+        segments = new Segment[count];
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+    }
+
+    private Segment segment(Pair pair) {
+        int h = pair.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    // cached result for the pair, null if absent
+    public Result get(String nounA, String nounB) {
+        Result result = null;
+        if (capacity > 0) {
+            Pair pair = new Pair(nounA, nounB);
+            result = segment(pair).get(pair);
+        }
+        if (result == null) misses.increment();
+        else hits.increment();
+        return result;
+    }
+
+    public void put(String nounA, String nounB, Result result) {
+        put(nounA, nounB, result, generation(nounA, nounB));
+    }
+
+    // store the result unless the pair's segment was invalidated since generation was read
+    public void put(String nounA, String nounB, Result result, long generation) {
+        if (capacity == 0) return;
+        Pair pair = new Pair(nounA, nounB);
+        segment(pair).put(pair, result, generation);
+    }
+
+    // invalidation count of the pair's segment, read without locking: read it before computing a
+    // result, and put refuses the result if an invalidation came in between
+    public long generation(String nounA, String nounB) {
+        return segment(new Pair(nounA, nounB)).generation;
+    }
+
+    // drop the entries of every pair with an affected noun, returns the number dropped
+    public int invalidate(Predicate<String> affected) {
+        int dropped = 0;
+        for (Segment segment : segments) {
+            dropped += segment.invalidate(affected);
+        }
+
+        return dropped;
+    }
+
+    public void clear() {
+        invalidate(noun -> true);
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            size += segment.size;
+        }
+
+        return size;
+    }
+
+    public long hits() {
+        return hits.sum();
+    }
+
+    public long misses() {
+        return misses.sum();
+    }
+
+    public long evictions() {
+        return evictions.sum();
+    }
+
+    public String toString() {
+        return "size: " + size() + "/" + capacity + ", hits: " + hits() + ", misses: " + misses()
+                + ", evictions: " + evictions();
+    }
+}
@@ -0,0 +1,221 @@
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.StdOut;
+
+import java.util.Arrays;
+
+// topological ranks of a growing DAG, kept valid edge by edge (Pearce-Kelly): every edge v -> w has
+// rank[v] < rank[w]. an edge that already agrees costs O(1); otherwise only the vertices ranked between
+// its endpoints are searched and, if no cycle is found, the ranks they hold are shuffled among them.
+// keeps the reverse edges it needs, forward edges are read from the current graph
+public class TopologicalOrder {
+    private int V;
+    private int[] rank;
+    private int minRank;
+
+    // hyponyms of v are hyponyms[v][0 .. hyponymCount[v])
+    private int[][] hyponyms;
+    private int[] hyponymCount;
+
+    // scratch for the searches, vertex v is visited iff mark[v] == epoch
+    private int[] mark;
+    private int epoch;
+    private int[] stack;
+    private int[] forward;
+    private int[] backward;
+
+    // ranks from Kahn's order of a DAG, leaves first
+    public TopologicalOrder(CSRDigraph G) {
+        if (G == null) throw new IllegalArgumentException("graph is null");
+
+        V = G.V();
+        rank = new int[V];
+        hyponyms = new int[V][];
+        hyponymCount = new int[V];
+        mark = new int[V];
+        stack = new int[Math.max(1, V)];
+        forward = new int[Math.max(1, V)];
+        backward = new int[Math.max(1, V)];
+
+        int[] indegree = new int[V];
+        for (int i = 0; i < G.E(); i++) {
+            indegree[G.target(i)]++;
+        }
+        for (int v = 0; v < V; v++) {
+            hyponyms[v] = new int[Math.max(1, indegree[v])];
+        }
+
+        int[] queue = new int[V];
+        int tail = 0;
+        for (int v = 0; v < V; v++) {
+            if (indegree[v] == 0) queue[tail++] = v;
+        }
+        for (int head = 0; head < tail; head++) {
+            int v = queue[head];
+            rank[v] = head;
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                int w = G.target(i);
+                hyponyms[w][hyponymCount[w]++] = v;
+                if (--indegree[w] == 0) queue[tail++] = w;
+            }
+        }
+
+        if (tail != V) throw new IllegalArgumentException("cycle found");
+        minRank = 0;
+    }
+
+    private void addHyponym(int w, int v) {
+        if (hyponymCount[w] == hyponyms[w].length) {
+            hyponyms[w] = Arrays.copyOf(hyponyms[w], 2 * hyponyms[w].length);
+        }
+        hyponyms[w][hyponymCount[w]++] = v;
+    }
+
+    private void nextEpoch() {
+        if (epoch == Integer.MAX_VALUE) {
+            Arrays.fill(mark, 0);
+            epoch = 0;
+        }
+        epoch++;
+    }
+
+    public int V() {
+        return V;
+    }
+
+    public int rank(int v) {
+        return rank[v];
+    }
+
+    // register vertex V with the given hypernyms; nothing points to a new vertex, so it cannot close
+    // a cycle and ranks below every other vertex
+    public void addVertex(int[] hypernyms) {
+        if (V == rank.length) {
+            int capacity = Math.max(16, 2 * V);
+            rank = Arrays.copyOf(rank, capacity);
+            hyponyms = Arrays.copyOf(hyponyms, capacity);
+            hyponymCount = Arrays.copyOf(hyponymCount, capacity);
+            mark = Arrays.copyOf(mark, capacity);
+            stack = Arrays.copyOf(stack, capacity);
+            forward = Arrays.copyOf(forward, capacity);
+            backward = Arrays.copyOf(backward, capacity);
+        }
+
+        int v = V++;
+        rank[v] = --minRank;
+        hyponyms[v] = new int[1];
+        for (int w : hypernyms) {
+            addHyponym(w, v);
+        }
+    }
+
+    // record edge v -> w, G being the graph without it. returns false, changing nothing, if the edge
+    // would close a cycle
+    public boolean addEdge(CSRDigraph G, int v, int w) {
+        if (v == w) return false;
+
+        int lower = rank[w];
+        int upper = rank[v];
+        if (upper < lower) {
+            addHyponym(w, v);
+            return true;
+        }
+
+        // forward from w through vertices ranked at most rank[v]: reaching v means a cycle
+        nextEpoch();
+        int forwardCount = 0;
+        int top = 0;
+        stack[top++] = w;
+        mark[w] = epoch;
+        while (top > 0) {
+            int x = stack[--top];
+            forward[forwardCount++] = x;
+            for (int i = G.begin(x); i < G.end(x); i++) {
+                int y = G.target(i);
+                if (y == v) return false;
+                if (mark[y] == epoch || rank[y] > upper) continue;
+                mark[y] = epoch;
+                stack[top++] = y;
+            }
+        }
+
+        // backward from v through vertices ranked at least rank[w]
+        int backwardCount = 0;
+        stack[top++] = v;
+        mark[v] = epoch;
+        while (top > 0) {
+            int x = stack[--top];
+            backward[backwardCount++] = x;
+            for (int i = 0; i < hyponymCount[x]; i++) {
+                int y = hyponyms[x][i];
+                if (mark[y] == epoch || rank[y] < lower) continue;
+                mark[y] = epoch;
+                stack[top++] = y;
+            }
+        }
+
+        // the backward set now goes before the forward set, each keeping its relative order,
+        // reusing the ranks both sets held
+        sortByRank(backward, backwardCount);
+        sortByRank(forward, forwardCount);
+        int[] ranks = new int[backwardCount + forwardCount];
+        for (int i = 0; i < backwardCount; i++) ranks[i] = rank[backward[i]];
+        for (int i = 0; i < forwardCount; i++) ranks[backwardCount + i] = rank[forward[i]];
+        Arrays.sort(ranks);
+        for (int i = 0; i < backwardCount; i++) rank[backward[i]] = ranks[i];
+        for (int i = 0; i < forwardCount; i++) rank[forward[i]] = ranks[backwardCount + i];
+
+        addHyponym(w, v);
+        return true;
+    }
+
+    // sort vertices by rank, packed as rank << 32 | vertex so one primitive sort does it
+    private void sortByRank(int[] a, int n) {
+        long[] keys = new long[n];
+        for (int i = 0; i < n; i++) {
+            keys[i] = (long) rank[a[i]] << 32 | a[i];
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < n; i++) {
+            a[i] = (int) keys[i];
+        }
+    }
+
+    // v and every vertex below it, i.e. the synsets whose ancestors change when v gains a hypernym
+    public int[] descendants(int v) {
+        nextEpoch();
+        int count = 0;
+        int top = 0;
+        stack[top++] = v;
+        mark[v] = epoch;
+        while (top > 0) {
+            int x = stack[--top];
+            forward[count++] = x;
+            for (int i = 0; i < hyponymCount[x]; i++) {
+                int y = hyponyms[x][i];
+                if (mark[y] == epoch) continue;
+                mark[y] = epoch;
+                stack[top++] = y;
+            }
+        }
+
+        return Arrays.copyOf(forward, count);
+    }
+
+    public static void main(String[] args) {
+        Digraph digraph = new Digraph(4);
+        digraph.addEdge(0, 1);
+        digraph.addEdge(2, 3);
+        TopologicalOrder order = new TopologicalOrder(new CSRDigraph(digraph));
+
+        int[][] edges = {{3, 0}, {1, 2}, {1, 3}};
+        for (int[] edge : edges) {
+            boolean added = order.addEdge(new CSRDigraph(digraph), edge[0], edge[1]);
+            if (added) digraph.addEdge(edge[0], edge[1]);
+            StdOut.println(edge[0] + " -> " + edge[1] + (added ? " added" : " closes a cycle"));
+        }
+
+        for (int v = 0; v < order.V(); v++) {
+            StdOut.println(v + ": rank " + order.rank(v));
+        }
+    }
+}
@@ -1,106 +1,283 @@
-import edu.princeton.cs.algs4.In;
 import edu.princeton.cs.algs4.StdOut;
-import edu.princeton.cs.algs4.Digraph;
-import edu.princeton.cs.algs4.Bag;
-import edu.princeton.cs.algs4.SeparateChainingHashST;
-import edu.princeton.cs.algs4.DirectedCycle;
 
-import java.util.ArrayList;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 public class WordNet {
+    private static final int DEFAULT_CACHE_CAPACITY = 4096;
 
-    // noun -> vertex indexes(notice that noun may appear in multiple synset)
-    private final SeparateChainingHashST<String, Bag<Integer>> nouns;
+    // per-thread copies of the two nouns' synsets handed to SAP and AncestorIndex, as the postings
+    // of a snapshot are read in place from the mapped file
+    private static final ThreadLocal<int[][]> SETS = ThreadLocal.withInitial(() -> new int[][]{new int[4], new int[4]});
 
-    // vertex index -> synset(i.e., vertex in graph)
-    private final ArrayList<String> synsets;
+    // everything a query reads, immutable once published: an update builds a new state and swaps it in,
+    // so queries need no lock and always see one consistent version. the nearest noun search structures
+    // are derived from it on first use
+    private static final class State {
+        // parsed files: vertex index -> synset(i.e., vertex in graph), noun postings and hypernym edges
+        final WordNetLoader files;
 
-    // Graph data structure
-    private final Digraph digraph;
+        // noun -> vertex indexes(notice that noun may appear in multiple synset)
+        final NounIndex nouns;
 
-    // SAP(Shortest Ancestral Path) implementation
-    private final SAP sap;
+        // SAP(Shortest Ancestral Path) implementation, thread safe with per-thread search state
+        final SAP sap;
 
-    // define vertex
-    private void readSynsets(String filename) {
-        In file = new In(filename);
+        // optional precomputed ancestor labels, null if disabled or too large
+        final AncestorIndex index;
 
-        while (!file.isEmpty()) {
-            String line = file.readLine();
-            String[] fields = line.split(",");
+        // hyponym graph and synset -> nouns for nearest, built by the first call; two threads racing
+        // both build an equal copy
+        private volatile NearestNouns nearest;
 
-            int index = Integer.parseInt(fields[0]);
-            assert index == synsets.size();
+        State(WordNetLoader files, NounIndex nouns, SAP sap, AncestorIndex index) {
+            this.files = files;
+            this.nouns = nouns;
+            this.sap = sap;
+            this.index = index;
+        }
 
-            synsets.add(fields[1]);
-            String[] words = fields[1].split("\\s");
+        // id of a noun in the noun index
+        int nounId(String noun) {
+            if (noun == null) {
+                throw new IllegalArgumentException("word is null");
+            }
 
-            for (String word : words) {
-                // add to st
-                if (!nouns.contains(word)) {
-                    nouns.put(word, new Bag<>());
-                }
-                nouns.get(word).add(index);
+            int id = nouns.id(noun);
+            if (id < 0) {
+                throw new IllegalArgumentException("Not WordNet noun: " + noun);
             }
 
+            return id;
         }
-    }
 
-    private void readHypernyms(String filename) {
-        In file = new In(filename);
+        SAPCache.Result query(int a, int b) {
+            int[][] sets = SETS.get();
+            int[] setA = sets[0] = nouns.postings(a, sets[0]);
+            int[] setB = sets[1] = nouns.postings(b, sets[1]);
+            int countA = nouns.end(a) - nouns.begin(a);
+            int countB = nouns.end(b) - nouns.begin(b);
 
-        while (!file.isEmpty()) {
-            String line = file.readLine();
-            String[] fields = line.split(",");
+            // can both sets be answered from the labels
+            if (index != null && index.covers(setA, 0, countA) && index.covers(setB, 0, countB)) {
+                return index.query(setA, 0, countA, setB, 0, countB);
+            }
 
-            int v = Integer.parseInt(fields[0]);
+            sap.length(setA, 0, countA, setB, 0, countB);
+            return new SAPCache.Result(sap.lastLength(), sap.lastAncestor());
+        }
 
-            for (int i = 1; i < fields.length; i++) {
-                digraph.addEdge(v, Integer.parseInt(fields[i]));
+        SAP.Ancestors ancestors(String noun) {
+            return ancestors(nounId(noun));
+        }
+
+        SAP.Ancestors ancestors(int id) {
+            int[][] sets = SETS.get();
+            int[] set = sets[0] = nouns.postings(id, sets[0]);
+            int count = nouns.end(id) - nouns.begin(id);
+
+            if (index != null && index.covers(set, 0, count)) return index.ancestors(set, 0, count);
+            return sap.ancestors(set, 0, count);
+        }
+
+        NearestNouns nearest() {
+            NearestNouns result = nearest;
+            if (result == null) {
+                result = new NearestNouns(files.graph(), nouns);
+                nearest = result;
             }
+
+            return result;
         }
     }
 
+    private volatile State state;
+
+    // recent SAP results by noun pair
+    private final SAPCache cache;
+
+    // topological ranks for incremental cycle checks, built by the first update; guarded by this
+    private TopologicalOrder order;
+
     public String toString() {
-        return digraph.toString();
+        return state.files.graph().toString();
     }
 
     // constructor takes the name of the two input files
     public WordNet(String synsets, String hypernyms) {
-        if (synsets == null) {
-            throw new IllegalArgumentException("synsets is null");
+        this(synsets, hypernyms, DEFAULT_CACHE_CAPACITY);
+    }
+
+    // cacheCapacity bounds the number of cached noun pairs, 0 disables the cache
+    public WordNet(String synsets, String hypernyms, int cacheCapacity) {
+        this(synsets, hypernyms, cacheCapacity, false);
+    }
+
+    // indexed precomputes ancestor labels so queries merge two labels instead of searching,
+    // queries fall back to BFS if the labels would be too large. distances are the same either way,
+    // but on ties sap may name another ancestor at the same distance than without the index; a noun
+    // whose labels went stale after an update falls back to BFS, so its tie answers can change then
+    public WordNet(String synsets, String hypernyms, int cacheCapacity, boolean indexed) {
+        this(WordNetLoader.load(synsets, hypernyms), cacheCapacity, indexed, true);
+    }
+
+    // validate is false only for snapshots, which were validated before they were saved
+    private WordNet(WordNetLoader files, int cacheCapacity, boolean indexed, boolean validate) {
+        CSRDigraph graph = files.graph();
+
+        if (validate) {
+            DirectedRooted dr = new DirectedRooted(graph);
+            if (!dr.isAcyclic()) {
+                throw new IllegalArgumentException("cycle found");
+            }
+
+            if (!dr.isRooted()) {
+                throw new IllegalArgumentException("not rooted");
+            }
         }
 
-        if (hypernyms == null) {
-            throw new IllegalArgumentException("hypernyms is null");
+        state = new State(files, files.nouns(), new SAP(graph), indexed ? AncestorIndex.build(graph) : null);
+        cache = new SAPCache(cacheCapacity);
+    }
+
+    // length and ancestor of the shortest ancestral path between two nouns, from cache if possible
+    private SAPCache.Result query(String nounA, String nounB) {
+        if (nounA == null || nounB == null) {
+            throw new IllegalArgumentException("word is null");
         }
 
-        this.nouns = new SeparateChainingHashST<>();
+        // read the generation before the state, so a result from a state replaced meanwhile is not cached
+        long generation = cache.generation(nounA, nounB);
+        State s = state;
+        int a = s.nounId(nounA);
+        int b = s.nounId(nounB);
 
-        this.synsets = new ArrayList<>();
-        readSynsets(synsets);
+        SAPCache.Result result = cache.get(nounA, nounB);
+        if (result != null) return result;
 
-        digraph = new Digraph(this.synsets.size());
-        readHypernyms(hypernyms);
+        // the cache key is unordered, so compute in the key's order: on ties sap(a, b) and sap(b, a)
+        // then get the same ancestor whether cached or not
+        result = nounA.compareTo(nounB) <= 0 ? s.query(a, b) : s.query(b, a);
+        cache.put(nounA, nounB, result, generation);
+        return result;
+    }
 
-        // check acyclic
-        DirectedCycle dc = new DirectedCycle(digraph);
-        if (dc.hasCycle()) {
-            throw new IllegalArgumentException("cycle found");
+    private void validateSynset(int v, int V) {
+        if (v < 0 || v >= V) {
+            throw new IllegalArgumentException("synset " + v + " is not between 0 and " + (V - 1));
+        }
+    }
+
+    private TopologicalOrder order(State s) {
+        if (order == null) order = new TopologicalOrder(s.files.graph());
+        return order;
+    }
+
+    // drop cached pairs with a noun in one of the given synsets
+    private void invalidate(State s, int[] synsets) {
+        BitSet affected = new BitSet();
+        for (int v : synsets) affected.set(v);
+
+        NounIndex nouns = s.nouns;
+        cache.invalidate(noun -> {
+            int id = nouns.id(noun);
+            for (int i = nouns.begin(id); i < nouns.end(id); i++) {
+                if (affected.get(nouns.posting(i))) return true;
+            }
+            return false;
+        });
+    }
+
+    // add a synset (space separated nouns, as in synsets.txt) below the given hypernyms, returns its id.
+    // a new synset has no hyponyms, so it cannot close a cycle, and it keeps the root unique as long as
+    // it has a hypernym; only cached pairs of nouns it adds a meaning to are dropped
+    public synchronized int addSynset(String synset, int... hypernyms) {
+        if (synset == null) throw new IllegalArgumentException("synset is null");
+        if (hypernyms == null) throw new IllegalArgumentException("hypernyms is null");
+        if (synset.isEmpty() || synset.indexOf(',') >= 0 || synset.indexOf('\n') >= 0
+                || synset.startsWith(" ") || synset.endsWith(" ") || synset.contains("  ")) {
+            throw new IllegalArgumentException("not a synset: " + synset);
+        }
+        if (hypernyms.length == 0) throw new IllegalArgumentException("not rooted");
+
+        State s = state;
+        int V = s.files.V();
+        for (int w : hypernyms) validateSynset(w, V);
+
+        String[] tokens = synset.split(" ");
+        int[] nounIds = new int[tokens.length];
+        String[] added = new String[tokens.length];
+        int addedCount = 0;
+        for (int i = 0; i < tokens.length; i++) {
+            nounIds[i] = s.nouns.id(tokens[i]);
+            for (int j = 0; j < addedCount && nounIds[i] < 0; j++) {
+                if (added[j].equals(tokens[i])) nounIds[i] = s.nouns.size() + j;
+            }
+            if (nounIds[i] < 0) {
+                nounIds[i] = s.nouns.size() + addedCount;
+                added[addedCount++] = tokens[i];
+            }
         }
+        added = Arrays.copyOf(added, addedCount);
 
-        // check rooted
-        DirectedRooted dr = new DirectedRooted(digraph);
-        if (!dr.isRooted()) {
-            throw new IllegalArgumentException("not rooted");
+        hypernyms = hypernyms.clone();
+        order(s).addVertex(hypernyms);
+
+        WordNetLoader files = s.files.withSynset(synset, nounIds, added, hypernyms);
+        state = new State(files, files.nouns(s.nouns, added), new SAP(s.sap, files.graph()), s.index);
+        invalidate(state, new int[]{V});
+        return V;
+    }
+
+    // add hypernym edge synset -> hypernym, rejected with IllegalArgumentException if it closes a cycle.
+    // the cycle check only searches synsets ranked between the two; cached pairs and index labels are
+    // dropped only for the synset and its hyponyms, whose ancestors change
+    public synchronized void addHypernym(int synset, int hypernym) {
+        State s = state;
+        int V = s.files.V();
+        validateSynset(synset, V);
+        validateSynset(hypernym, V);
+
+        CSRDigraph graph = s.files.graph();
+        for (int i = graph.begin(synset); i < graph.end(synset); i++) {
+            if (graph.target(i) == hypernym) return;
+        }
+
+        TopologicalOrder order = order(s);
+        if (!order.addEdge(graph, synset, hypernym)) {
+            throw new IllegalArgumentException("cycle found");
         }
 
-        sap = new SAP(digraph);
+        int[] affected = order.descendants(synset);
+        WordNetLoader files = s.files.withHypernym(synset, hypernym);
+        AncestorIndex index = s.index == null ? null : s.index.invalidate(affected);
+        state = new State(files, s.nouns, new SAP(s.sap, files.graph()), index);
+        invalidate(state, affected);
+    }
+
+    // write a binary snapshot of the validated synsets, nouns and hypernym graph
+    public void save(Path path) {
+        state.files.save(path);
+    }
+
+    // WordNet from a snapshot written by save, skipping parsing and validation. the graph, nouns and
+    // postings are read in place from the mapped file until the first addSynset copies them
+    public static WordNet load(Path path) {
+        return load(path, DEFAULT_CACHE_CAPACITY, false);
+    }
+
+    // cacheCapacity and indexed as in the constructor
+    public static WordNet load(Path path, int cacheCapacity, boolean indexed) {
+        return new WordNet(WordNetLoader.open(path), cacheCapacity, indexed, false);
     }
 
     // returns all WordNet nouns
     public Iterable<String> nouns() {
-        return nouns.keys();
+        return state.nouns.nouns();
     }
 
     // is the word a WordNet noun?
@@ -109,35 +286,104 @@ public class WordNet {
             throw new IllegalArgumentException("word is null");
         }
 
-        return nouns.contains(word);
+        return state.nouns.contains(word);
     }
 
     // distance between nounA and nounB (defined below)
     public int distance(String nounA, String nounB) {
-        if (!isNoun(nounA)) {
-            throw new IllegalArgumentException("Not WordNet noun: " + nounA);
+        return query(nounA, nounB).length();
+    }
+
+    // a synset (second field of synsets.txt) that is the common ancestor of nounA and nounB
+    // in a shortest ancestral path (defined below)
+    public String sap(String nounA, String nounB) {
+        int ancestor = query(nounA, nounB).ancestor();
+        return state.files.synset(ancestor);
+    }
+
+    // distance from source to every target: one search and one merge of ancestor lists per distinct noun
+    public int[] distances(String source, String[] targets) {
+        if (targets == null) {
+            throw new IllegalArgumentException("targets is null");
         }
 
-        if (!isNoun(nounB)) {
-            throw new IllegalArgumentException("Not WordNet noun: " + nounB);
+        State s = state;
+        SAP.Ancestors from = s.ancestors(source);
+        Map<String, Integer> known = new HashMap<>();
+        int[] distances = new int[targets.length];
+        for (int i = 0; i < targets.length; i++) {
+            Integer distance = known.get(targets[i]);
+            if (distance == null) {
+                distance = from.length(s.ancestors(targets[i]));
+                known.put(targets[i], distance);
+            }
+            distances[i] = distance;
         }
 
-        return sap.length(nouns.get(nounA), nouns.get(nounB));
+        return distances;
     }
 
-    // a synset (second field of synsets.txt) that is the common ancestor of nounA and nounB
-    // in a shortest ancestral path (defined below)
-    public String sap(String nounA, String nounB) {
-        if (!isNoun(nounA)) {
-            throw new IllegalArgumentException("Not WordNet noun: " + nounA);
+    // symmetric matrix of pairwise distances, one search per noun
+    public int[][] distanceMatrix(String[] nouns) {
+        if (nouns == null) {
+            throw new IllegalArgumentException("nouns is null");
+        }
+
+        State s = state;
+        SAP.Ancestors[] ancestors = new SAP.Ancestors[nouns.length];
+        for (int i = 0; i < nouns.length; i++) {
+            ancestors[i] = s.ancestors(nouns[i]);
+        }
+
+        int[][] matrix = new int[nouns.length][nouns.length];
+        for (int i = 0; i < nouns.length; i++) {
+            for (int j = i + 1; j < nouns.length; j++) {
+                matrix[i][j] = ancestors[i].length(ancestors[j]);
+                matrix[j][i] = matrix[i][j];
+            }
+        }
+
+        return matrix;
+    }
+
+    // the k nouns closest to noun, nearest first; noun itself is left out and nouns at equal distance
+    // come in search order. one upward search plus a downward search that stops after k nouns,
+    // instead of a distance to every noun
+    public Iterable<String> nearest(String noun, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k is negative");
         }
 
-        if (!isNoun(nounB)) {
-            throw new IllegalArgumentException("Not WordNet noun: " + nounB);
+        State s = state;
+        int id = s.nounId(noun);
+        int[] ids = s.nearest().nearest(s.ancestors(id), id, k);
+
+        String[] result = new String[ids.length];
+        for (int i = 0; i < ids.length; i++) {
+            result[i] = s.nouns.noun(ids[i]);
         }
 
-        int ancestor = sap.ancestor(nouns.get(nounA), nouns.get(nounB));
-        return synsets.get(ancestor);
+        return Collections.unmodifiableList(Arrays.asList(result));
+    }
+
+    // all ancestors of the noun's synsets with their distance, safe to call from several threads
+    SAP.Ancestors ancestors(String noun) {
+        return state.ancestors(noun);
+    }
+
+    // precomputed ancestor index, null if not built
+    AncestorIndex index() {
+        return state.index;
+    }
+
+    // number of synsets
+    public int synsets() {
+        return state.files.V();
+    }
+
+    // hit, miss and eviction counters of the result cache
+    public SAPCache cache() {
+        return cache;
     }
 
     // do unit testing of this class
@@ -0,0 +1,1034 @@
+import edu.princeton.cs.algs4.Bag;
+import edu.princeton.cs.algs4.Digraph;
+import edu.princeton.cs.algs4.DirectedCycle;
+import edu.princeton.cs.algs4.In;
+import edu.princeton.cs.algs4.SeparateChainingHashST;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// benchmark client for WordNet and SAP, synthetic taxonomies shaped like WordNet
+// (every vertex but the root has one or two hypernyms with a smaller index)
+// usage: java WordNetBenchmark csr [vertices]
+//        java WordNetBenchmark alloc [vertices] [queries]
+//        java WordNetBenchmark bidirectional [vertices] [queries]
+//        java WordNetBenchmark cache [vertices] [queries] [zipfExponent]
+//        java WordNetBenchmark concurrent [maxThreads] [queriesPerThread]
+//        java WordNetBenchmark matrix
+//        java WordNetBenchmark outcast [candidates] [maxThreads]
+//        java WordNetBenchmark index [vertices] [queries]
+//        java WordNetBenchmark startup [vertices]
+//        java WordNetBenchmark snapshot [vertices]
+//        java WordNetBenchmark nouns [vertices] [lookups]
+//        java WordNetBenchmark validate [maxThreads]
+//        java WordNetBenchmark update [vertices] [updates]
+//        java WordNetBenchmark nearest [vertices] [queries]
+public class WordNetBenchmark {
+    private static final int WORDNET_SYNSETS = 82115;
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // bytes allocated so far by the calling thread
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    // random rooted DAG, vertex 0 is the root
+    static Digraph randomTaxonomy(int V) {
+        Digraph digraph = new Digraph(V);
+        for (int v = 1; v < V; v++) {
+            digraph.addEdge(v, StdRandom.uniformInt(v));
+            if (StdRandom.bernoulli(0.03)) {
+                int w = StdRandom.uniformInt(v);
+                digraph.addEdge(v, w);
+            }
+        }
+
+        return digraph;
+    }
+
+    // deep variant: hypernyms are picked among the previous 100 vertices, giving long chains
+    static Digraph deepTaxonomy(int V) {
+        Digraph digraph = new Digraph(V);
+        for (int v = 1; v < V; v++) {
+            digraph.addEdge(v, v - 1 - StdRandom.uniformInt(Math.min(v, 100)));
+            if (StdRandom.bernoulli(0.03)) {
+                int w = StdRandom.uniformInt(v);
+                digraph.addEdge(v, w);
+            }
+        }
+
+        return digraph;
+    }
+
+    // write a random taxonomy as synsets/hypernyms files in a temporary directory, returns both paths.
+    // synset v contains noun "n<v>" and, one time in five, a second noun shared with other synsets
+    static String[] writeTaxonomy(Digraph digraph) {
+        try {
+            Path dir = Files.createTempDirectory("wordnet");
+            Path synsets = dir.resolve("synsets.txt");
+            Path hypernyms = dir.resolve("hypernyms.txt");
+            int V = digraph.V();
+
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(synsets))) {
+                for (int v = 0; v < V; v++) {
+                    out.print(v + ",n" + v);
+                    if (StdRandom.bernoulli(0.2)) out.print(" s" + StdRandom.uniformInt(V / 4 + 1));
+                    out.println(",gloss of synset " + v);
+                }
+            }
+
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(hypernyms))) {
+                for (int v = 0; v < V; v++) {
+                    out.print(v);
+                    for (int w : digraph.adj(v)) {
+                        out.print("," + w);
+                    }
+                    out.println();
+                }
+            }
+
+            synsets.toFile().deleteOnExit();
+            hypernyms.toFile().deleteOnExit();
+            dir.toFile().deleteOnExit();
+            return new String[]{synsets.toString(), hypernyms.toString()};
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String[] nounArray(WordNet wordNet) {
+        ArrayList<String> nouns = new ArrayList<>();
+        for (String noun : wordNet.nouns()) {
+            nouns.add(noun);
+        }
+
+        return nouns.toArray(new String[0]);
+    }
+
+    private static long usedMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static Digraph copy(Digraph digraph) {
+        Digraph newDigraph = new Digraph(digraph.V());
+        for (int v = 0; v < digraph.V(); v++) {
+            for (int w : digraph.adj(v)) {
+                newDigraph.addEdge(v, w);
+            }
+        }
+
+        return newDigraph;
+    }
+
+    // full BFS from every source, both graphs traversed with the same primitive queue
+    private static long bfsDigraph(Digraph G, int[] sources, int[] queue, int[] marked) {
+        long touched = 0;
+        for (int s = 0; s < sources.length; s++) {
+            int stamp = s + 1;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = sources[s];
+            marked[sources[s]] = stamp;
+
+            while (head < tail) {
+                int v = queue[head++];
+                for (int w : G.adj(v)) {
+                    if (marked[w] == stamp) continue;
+                    marked[w] = stamp;
+                    queue[tail++] = w;
+                }
+            }
+            touched += tail;
+        }
+
+        return touched;
+    }
+
+    private static long bfsCSR(CSRDigraph G, int[] sources, int[] queue, int[] marked) {
+        long touched = 0;
+        for (int s = 0; s < sources.length; s++) {
+            int stamp = s + 1;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = sources[s];
+            marked[sources[s]] = stamp;
+
+            while (head < tail) {
+                int v = queue[head++];
+                for (int i = G.begin(v); i < G.end(v); i++) {
+                    int w = G.target(i);
+                    if (marked[w] == stamp) continue;
+                    marked[w] = stamp;
+                    queue[tail++] = w;
+                }
+            }
+            touched += tail;
+        }
+
+        return touched;
+    }
+
+    private static void csr(int V) {
+        Digraph digraph = randomTaxonomy(V);
+        StdOut.println("vertices: " + digraph.V() + ", edges: " + digraph.E());
+
+        long before = usedMemory();
+        Digraph copied = copy(digraph);
+        long digraphBytes = usedMemory() - before;
+
+        before = usedMemory();
+        CSRDigraph csr = new CSRDigraph(digraph);
+        long csrBytes = usedMemory() - before;
+
+        StdOut.printf("%-10s %12s %16s\n", "graph", "memory(KB)", "BFS(Mvertex/s)");
+
+        // upward BFS from random vertices, as SAP does; the first round warms up the JIT
+        int[] sources = new int[200000];
+        for (int i = 0; i < sources.length; i++) {
+            sources[i] = StdRandom.uniformInt(V);
+        }
+        int[] queue = new int[V];
+        int[] marked = new int[V];
+
+        double digraphRate = 0;
+        double csrRate = 0;
+        for (int round = 0; round < 2; round++) {
+            Arrays.fill(marked, 0);
+            Stopwatch stopwatch = new Stopwatch();
+            long touched = bfsDigraph(copied, sources, queue, marked);
+            digraphRate = touched / Math.max(stopwatch.elapsedTime(), 1e-3) / 1e6;
+
+            Arrays.fill(marked, 0);
+            stopwatch = new Stopwatch();
+            touched = bfsCSR(csr, sources, queue, marked);
+            csrRate = touched / Math.max(stopwatch.elapsedTime(), 1e-3) / 1e6;
+        }
+
+        StdOut.printf("%-10s %12d %16.1f\n", "Digraph", digraphBytes / 1024, digraphRate);
+        StdOut.printf("%-10s %12d %16.1f\n", "CSR", csrBytes / 1024, csrRate);
+    }
+
+    // throughput and allocation of SAP queries between random vertices
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void alloc(int V, int queries) {
+        SAP sap = new SAP(randomTaxonomy(V));
+        int[] from = new int[queries];
+        int[] to = new int[queries];
+        Bag<Integer>[] setsFrom = (Bag<Integer>[]) new Bag[queries];
+        Bag<Integer>[] setsTo = (Bag<Integer>[]) new Bag[queries];
+        for (int i = 0; i < queries; i++) {
+            from[i] = StdRandom.uniformInt(V);
+            to[i] = StdRandom.uniformInt(V);
+            setsFrom[i] = new Bag<>();
+            setsFrom[i].add(from[i]);
+            setsTo[i] = new Bag<>();
+            setsTo[i].add(to[i]);
+        }
+
+        StdOut.println("vertices: " + V + ", queries: " + queries);
+        StdOut.printf("%-22s %12s %10s\n", "query", "queries/s", "bytes/op");
+
+        // first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            long checksum = 0;
+            long bytes = allocatedBytes();
+            Stopwatch stopwatch = new Stopwatch();
+            for (int i = 0; i < queries; i++) {
+                checksum += sap.length(from[i], to[i]);
+            }
+            double elapsed = stopwatch.elapsedTime();
+            bytes = allocatedBytes() - bytes;
+            if (round == 1) {
+                StdOut.printf("%-22s %12.0f %10.1f\n", "length(int, int)", queries / Math.max(elapsed, 1e-3),
+                        (double) bytes / queries);
+            }
+
+            bytes = allocatedBytes();
+            stopwatch = new Stopwatch();
+            for (int i = 0; i < queries; i++) {
+                checksum -= sap.length(setsFrom[i], setsTo[i]);
+            }
+            elapsed = stopwatch.elapsedTime();
+            bytes = allocatedBytes() - bytes;
+            if (round == 1) {
+                StdOut.printf("%-22s %12.0f %10.1f\n", "length(Bag, Bag)", queries / Math.max(elapsed, 1e-3),
+                        (double) bytes / queries);
+            }
+
+            if (checksum != 0) throw new IllegalStateException("results differ");
+        }
+    }
+
+    // noun-like vertex sets of one to three synsets
+    private static Bag<Integer> randomSet(int V) {
+        Bag<Integer> set = new Bag<>();
+        int size = 1 + StdRandom.uniformInt(3);
+        for (int i = 0; i < size; i++) {
+            set.add(StdRandom.uniformInt(V));
+        }
+
+        return set;
+    }
+
+    // lockstep early-terminating search vs two full BFS on random noun-like pairs
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void bidirectional(int V, int queries) {
+        Bag<Integer>[] setsA = (Bag<Integer>[]) new Bag[queries];
+        Bag<Integer>[] setsB = (Bag<Integer>[]) new Bag[queries];
+        for (int i = 0; i < queries; i++) {
+            setsA[i] = randomSet(V);
+            setsB[i] = randomSet(V);
+        }
+
+        StdOut.println("vertices: " + V + ", queries: " + queries);
+        StdOut.printf("%-10s %-14s %14s %12s\n", "taxonomy", "search", "touched/query", "queries/s");
+
+        String[] shapes = {"random", "deep"};
+        for (String shape : shapes) {
+            SAP sap = new SAP(shape.equals("random") ? randomTaxonomy(V) : deepTaxonomy(V));
+            long[] checksum = new long[2];
+
+            for (int mode = 0; mode < 2; mode++) {
+                sap.setBidirectional(mode == 1);
+
+                // first round warms up the JIT
+                for (int round = 0; round < 2; round++) {
+                    long touched = 0;
+                    checksum[mode] = 0;
+                    Stopwatch stopwatch = new Stopwatch();
+                    for (int i = 0; i < queries; i++) {
+                        checksum[mode] = checksum[mode] * 31 + sap.ancestor(setsA[i], setsB[i]);
+                        touched += sap.lastTouched();
+                    }
+                    double elapsed = stopwatch.elapsedTime();
+
+                    if (round == 1) {
+                        StdOut.printf("%-10s %-14s %14.1f %12.0f\n", shape, mode == 1 ? "lockstep" : "full BFS",
+                                (double) touched / queries, queries / Math.max(elapsed, 1e-3));
+                    }
+                }
+            }
+
+            if (checksum[0] != checksum[1]) throw new IllegalStateException("results differ");
+        }
+    }
+
+    // cumulative distribution of a Zipf law over n ranks
+    private static double[] zipf(int n, double exponent) {
+        double[] cdf = new double[n];
+        double sum = 0;
+        for (int i = 0; i < n; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cdf[i] = sum;
+        }
+        for (int i = 0; i < n; i++) {
+            cdf[i] /= sum;
+        }
+
+        return cdf;
+    }
+
+    private static int sample(double[] cdf) {
+        int index = Arrays.binarySearch(cdf, StdRandom.uniformDouble());
+        return Math.min(index < 0 ? -index - 1 : index, cdf.length - 1);
+    }
+
+    // distance + sap per query over Zipf distributed noun pairs, for several cache capacities
+    private static void cache(int V, int queries, double exponent) {
+        String[] files = writeTaxonomy(randomTaxonomy(V));
+        int[] capacities = {0, 1024, 16384};
+
+        // a pool of distinct pairs, popular pairs first
+        int pool = 100000;
+        String[] nouns = nounArray(new WordNet(files[0], files[1], 0));
+        String[] pairA = new String[pool];
+        String[] pairB = new String[pool];
+        for (int i = 0; i < pool; i++) {
+            pairA[i] = nouns[StdRandom.uniformInt(nouns.length)];
+            pairB[i] = nouns[StdRandom.uniformInt(nouns.length)];
+        }
+
+        double[] cdf = zipf(pool, exponent);
+        int[] trace = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            trace[i] = sample(cdf);
+        }
+
+        StdOut.println("synsets: " + V + ", queries: " + queries + ", pair pool: " + pool + ", zipf exponent: " + exponent);
+        StdOut.printf("%10s %12s %10s %10s\n", "capacity", "queries/s", "hit rate", "evictions");
+
+        for (int capacity : capacities) {
+            WordNet wordNet = new WordNet(files[0], files[1], capacity);
+
+            // first half warms up the JIT and the cache
+            for (int round = 0; round < 2; round++) {
+                long hits = wordNet.cache().hits();
+                long misses = wordNet.cache().misses();
+                Stopwatch stopwatch = new Stopwatch();
+                for (int i = round; i < queries; i += 2) {
+                    int p = trace[i];
+                    wordNet.distance(pairA[p], pairB[p]);
+                    wordNet.sap(pairB[p], pairA[p]);
+                }
+                double elapsed = stopwatch.elapsedTime();
+
+                if (round == 1) {
+                    hits = wordNet.cache().hits() - hits;
+                    misses = wordNet.cache().misses() - misses;
+                    StdOut.printf("%10d %12.0f %9.1f%% %10d\n", capacity, queries / 2 / Math.max(elapsed, 1e-3),
+                            100.0 * hits / (hits + misses), wordNet.cache().evictions());
+                }
+            }
+        }
+    }
+
+    // one shared WordNet (cache disabled) queried from 1..maxThreads threads
+    private static void concurrent(int maxThreads, int queriesPerThread) throws InterruptedException {
+        String[] files = writeTaxonomy(randomTaxonomy(WORDNET_SYNSETS));
+        WordNet wordNet = new WordNet(files[0], files[1], 0);
+        String[] nouns = nounArray(wordNet);
+
+        // large enough for every pair, so once filled the cached runs measure hits
+        WordNet cached = new WordNet(files[0], files[1], queriesPerThread);
+
+        String[] pairA = new String[queriesPerThread];
+        String[] pairB = new String[queriesPerThread];
+        int[] expected = new int[queriesPerThread];
+        for (int i = 0; i < queriesPerThread; i++) {
+            pairA[i] = nouns[StdRandom.uniformInt(nouns.length)];
+            pairB[i] = nouns[StdRandom.uniformInt(nouns.length)];
+            expected[i] = wordNet.distance(pairA[i], pairB[i]);
+        }
+
+        StdOut.println("synsets: " + WORDNET_SYNSETS + ", queries per thread: " + queriesPerThread
+                + ", cores: " + Runtime.getRuntime().availableProcessors());
+        StdOut.printf("%8s %14s %14s\n", "threads", "no cache(q/s)", "cache(q/s)");
+
+        // fill the cache and warm up the JIT
+        concurrentRun(wordNet, 1, pairA, pairB, expected);
+        concurrentRun(cached, 1, pairA, pairB, expected);
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            StdOut.printf("%8d %14.0f %14.0f\n", threads,
+                    concurrentRun(wordNet, threads, pairA, pairB, expected),
+                    concurrentRun(cached, threads, pairA, pairB, expected));
+        }
+    }
+
+    // every thread asks distance and sap of all pairs, starting at its own offset; returns queries per second
+    private static double concurrentRun(WordNet wordNet, int threads, String[] pairA, String[] pairB,
+            int[] expected) throws InterruptedException {
+        int queriesPerThread = pairA.length;
+        AtomicInteger errors = new AtomicInteger();
+        Thread[] workers = new Thread[threads];
+        for (int t = 0; t < threads; t++) {
+            int offset = t * 7919;
+            workers[t] = new Thread(() -> {
+                for (int k = 0; k < queriesPerThread; k++) {
+                    int i = (k + offset) % queriesPerThread;
+                    if (wordNet.distance(pairA[i], pairB[i]) != expected[i]) errors.incrementAndGet();
+                    wordNet.sap(pairA[i], pairB[i]);
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread worker : workers) worker.start();
+        for (Thread worker : workers) worker.join();
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        if (errors.get() > 0) throw new IllegalStateException(errors.get() + " wrong answers");
+        return threads * queriesPerThread / seconds;
+    }
+
+    // Outcast style sums: distance() for every ordered pair vs one distanceMatrix()
+    private static void matrix() {
+        String[] files = writeTaxonomy(randomTaxonomy(WORDNET_SYNSETS));
+        WordNet wordNet = new WordNet(files[0], files[1], 0);
+        String[] all = nounArray(wordNet);
+        int[] sizes = {5, 50, 500};
+
+        StdOut.printf("%6s %14s %14s %10s\n", "nouns", "pairwise(ms)", "matrix(ms)", "speedup");
+
+        // first round warms up the JIT
+        for (int round = 0; round < 2; round++) {
+            for (int n : sizes) {
+                String[] nouns = new String[n];
+                for (int i = 0; i < n; i++) {
+                    nouns[i] = all[StdRandom.uniformInt(all.length)];
+                }
+
+                int repeat = Math.max(1, 500000 / (n * n));
+                long pairwiseSum = 0;
+                long start = System.nanoTime();
+                for (int r = 0; r < repeat; r++) {
+                    for (int i = 0; i < n; i++) {
+                        for (int j = 0; j < n; j++) {
+                            if (i != j) pairwiseSum += wordNet.distance(nouns[i], nouns[j]);
+                        }
+                    }
+                }
+                double pairwise = (System.nanoTime() - start) / 1e6 / repeat;
+
+                long matrixSum = 0;
+                start = System.nanoTime();
+                for (int r = 0; r < repeat; r++) {
+                    int[][] matrix = wordNet.distanceMatrix(nouns);
+                    for (int[] row : matrix) {
+                        for (int d : row) matrixSum += d;
+                    }
+                }
+                double matrix = (System.nanoTime() - start) / 1e6 / repeat;
+
+                if (pairwiseSum != matrixSum) throw new IllegalStateException("results differ");
+                if (round == 1) {
+                    StdOut.printf("%6d %14.3f %14.3f %9.1fx\n", n, pairwise, matrix, pairwise / matrix);
+                }
+            }
+        }
+    }
+
+    // parallel Outcast over a large candidate list with 1..maxThreads pool workers
+    private static void outcast(int candidates, int maxThreads) {
+        String[] files = writeTaxonomy(randomTaxonomy(WORDNET_SYNSETS));
+        WordNet wordNet = new WordNet(files[0], files[1], 0);
+        String[] all = nounArray(wordNet);
+        String[] nouns = new String[candidates];
+        for (int i = 0; i < candidates; i++) {
+            nouns[i] = all[StdRandom.uniformInt(all.length)];
+        }
+
+        String expected = new Outcast(wordNet).outcast(nouns);
+        StdOut.println("candidates: " + candidates + ", cores: " + Runtime.getRuntime().availableProcessors());
+        StdOut.printf("%8s %10s\n", "threads", "time(s)");
+
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            Outcast outcast = new Outcast(wordNet, pool);
+            outcast.outcast(nouns);
+
+            Stopwatch stopwatch = new Stopwatch();
+            String result = outcast.outcast(nouns);
+            double elapsed = stopwatch.elapsedTime();
+            pool.shutdown();
+
+            if (!result.equals(expected)) throw new IllegalStateException("outcast differs: " + result);
+            StdOut.printf("%8d %10.3f\n", threads, elapsed);
+        }
+    }
+
+    // precomputed ancestor labels vs lockstep search: build cost, size and query throughput
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static void index(int V, int queries) {
+        Bag<Integer>[] setsA = (Bag<Integer>[]) new Bag[queries];
+        Bag<Integer>[] setsB = (Bag<Integer>[]) new Bag[queries];
+        for (int i = 0; i < queries; i++) {
+            setsA[i] = randomSet(V);
+            setsB[i] = randomSet(V);
+        }
+
+        StdOut.println("vertices: " + V + ", queries: " + queries);
+        StdOut.printf("%-10s %10s %12s %12s %14s %14s\n",
+                "taxonomy", "build(ms)", "entries", "MB", "BFS queries/s", "index queries/s");
+
+        String[] shapes = {"random", "deep"};
+        for (String shape : shapes) {
+            CSRDigraph G = new CSRDigraph(shape.equals("random") ? randomTaxonomy(V) : deepTaxonomy(V));
+            SAP sap = new SAP(G);
+
+            AncestorIndex.build(G);
+            Stopwatch stopwatch = new Stopwatch();
+            AncestorIndex index = AncestorIndex.build(G);
+            double build = stopwatch.elapsedTime() * 1000;
+            if (index == null) {
+                StdOut.printf("%-10s %10.0f %12s\n", shape, build, "over budget");
+                continue;
+            }
+
+            double bfsRate = 0;
+            double indexRate = 0;
+
+            // first round warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                long bfsSum = 0;
+                stopwatch = new Stopwatch();
+                for (int i = 0; i < queries; i++) {
+                    bfsSum += sap.length(setsA[i], setsB[i]);
+                }
+                bfsRate = queries / Math.max(stopwatch.elapsedTime(), 1e-3);
+
+                long indexSum = 0;
+                stopwatch = new Stopwatch();
+                for (int i = 0; i < queries; i++) {
+                    indexSum += index.query(setsA[i], setsB[i]).length();
+                }
+                indexRate = queries / Math.max(stopwatch.elapsedTime(), 1e-3);
+
+                if (bfsSum != indexSum) throw new IllegalStateException("lengths differ");
+            }
+
+            StdOut.printf("%-10s %10.0f %12d %12.1f %14.0f %14.0f\n", shape, build, index.entries(),
+                    index.memoryBytes() / 1e6, bfsRate, indexRate);
+        }
+    }
+
+    // the line based parsing WordNet used before the streaming loader: readLine, split and a symbol table
+    private static int splitParse(String synsets, String hypernyms) {
+        SeparateChainingHashST<String, Bag<Integer>> nouns = new SeparateChainingHashST<>();
+        ArrayList<String> synsetList = new ArrayList<>();
+
+        In file = new In(synsets);
+        while (!file.isEmpty()) {
+            String[] fields = file.readLine().split(",");
+            int index = Integer.parseInt(fields[0]);
+            synsetList.add(fields[1]);
+            for (String word : fields[1].split("\\s")) {
+                if (!nouns.contains(word)) nouns.put(word, new Bag<>());
+                nouns.get(word).add(index);
+            }
+        }
+
+        Digraph digraph = new Digraph(synsetList.size());
+        file = new In(hypernyms);
+        while (!file.isEmpty()) {
+            String[] fields = file.readLine().split(",");
+            int v = Integer.parseInt(fields[0]);
+            for (int i = 1; i < fields.length; i++) {
+                digraph.addEdge(v, Integer.parseInt(fields[i]));
+            }
+        }
+
+        return digraph.E();
+    }
+
+    // parsing time of the line based reader vs the memory-mapped loader, and full constructor time
+    private static void startup(int V) {
+        String[] files = writeTaxonomy(randomTaxonomy(V));
+        long bytes = new File(files[0]).length() + new File(files[1]).length();
+        StdOut.printf("vertices: %d, input: %.1f MB\n", V, bytes / 1e6);
+        StdOut.printf("%-24s %10s %14s\n", "phase", "time(ms)", "allocated(MB)");
+
+        // first rounds warm up the JIT
+        for (int round = 0; round < 3; round++) {
+            long allocated = allocatedBytes();
+            Stopwatch stopwatch = new Stopwatch();
+            int E = splitParse(files[0], files[1]);
+            double split = stopwatch.elapsedTime() * 1000;
+            double splitMB = (allocatedBytes() - allocated) / 1e6;
+
+            allocated = allocatedBytes();
+            stopwatch = new Stopwatch();
+            WordNetLoader loader = WordNetLoader.load(files[0], files[1]);
+            double mapped = stopwatch.elapsedTime() * 1000;
+            double mappedMB = (allocatedBytes() - allocated) / 1e6;
+            if (loader.graph().E() != E) throw new IllegalStateException("edge counts differ");
+
+            allocated = allocatedBytes();
+            stopwatch = new Stopwatch();
+            new WordNet(files[0], files[1]);
+            double constructor = stopwatch.elapsedTime() * 1000;
+            double constructorMB = (allocatedBytes() - allocated) / 1e6;
+
+            if (round == 2) {
+                StdOut.printf("%-24s %10.0f %14.1f\n", "parse: readLine + split", split, splitMB);
+                StdOut.printf("%-24s %10.0f %14.1f\n", "parse: mapped loader", mapped, mappedMB);
+                StdOut.printf("%-24s %10.0f %14.1f\n", "WordNet constructor", constructor, constructorMB);
+            }
+        }
+    }
+
+    // resident set size of this process in KB, -1 where /proc is not available
+    private static long residentKB() {
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (IOException e) {
+            return -1;
+        }
+        return -1;
+    }
+
+    // child process of the snapshot benchmark: build one WordNet, answer one query, report time and RSS
+    private static void coldStart(String[] args) {
+        Stopwatch stopwatch = new Stopwatch();
+        WordNet wordNet = args[1].equals("text") ? new WordNet(args[2], args[3]) : WordNet.load(Path.of(args[2]));
+        wordNet.distance("n1", "n2");
+        double ready = stopwatch.elapsedTime() * 1000;
+
+        long sinceStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        StdOut.println(ready + " " + sinceStart + " " + residentKB());
+    }
+
+    // cold start of a fresh JVM from text files vs from a binary snapshot
+    private static void snapshot(int V) {
+        String[] files = writeTaxonomy(randomTaxonomy(V));
+        try {
+            Path snapshot = Files.createTempFile("wordnet", ".snapshot");
+            snapshot.toFile().deleteOnExit();
+            new WordNet(files[0], files[1]).save(snapshot);
+
+            StdOut.printf("vertices: %d, text: %.1f MB, snapshot: %.1f MB\n", V,
+                    (Files.size(Path.of(files[0])) + Files.size(Path.of(files[1]))) / 1e6, Files.size(snapshot) / 1e6);
+            StdOut.printf("%-10s %14s %18s %10s\n", "source", "construct(ms)", "JVM start->ready", "RSS(MB)");
+
+            String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+            String classpath = System.getProperty("java.class.path");
+            String[][] commands = {
+                {java, "-cp", classpath, "WordNetBenchmark", "coldstart", "text", files[0], files[1]},
+                {java, "-cp", classpath, "WordNetBenchmark", "coldstart", "snapshot", snapshot.toString()},
+            };
+
+            // best of three fresh processes each
+            for (String[] command : commands) {
+                double[] best = {Double.MAX_VALUE, Double.MAX_VALUE, Double.MAX_VALUE};
+                for (int round = 0; round < 3; round++) {
+                    Process process = new ProcessBuilder(command).redirectErrorStream(true).start();
+                    String output = new String(process.getInputStream().readAllBytes()).trim();
+                    if (process.waitFor() != 0) throw new IllegalStateException(output);
+
+                    String[] fields = output.split(" ");
+                    for (int i = 0; i < 3; i++) {
+                        best[i] = Math.min(best[i], Double.parseDouble(fields[i]));
+                    }
+                }
+                StdOut.printf("%-10s %14.0f %18.0f %10.1f\n", command[5], best[0], best[1], best[2] / 1024);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // noun symbol table of boxed bags vs the open-addressing index: heap footprint and lookups, a lookup
+    // being a membership test plus a walk over the noun's synsets as WordNet does per query
+    private static void nouns(int V, int lookups) {
+        String[] files = writeTaxonomy(randomTaxonomy(V));
+        WordNetLoader loader = WordNetLoader.load(files[0], files[1]);
+
+        // postings are shared with the loader, so the index is measured by its own estimate; the symbol
+        // table gets its own copies of the strings so the heap delta covers all of it
+        NounIndex index = loader.nouns();
+        long indexBytes = index.memoryBytes();
+
+        long before = usedMemory();
+        SeparateChainingHashST<String, Bag<Integer>> st = new SeparateChainingHashST<>();
+        for (int id = 0; id < index.size(); id++) {
+            Bag<Integer> bag = new Bag<>();
+            for (int i = index.begin(id); i < index.end(id); i++) {
+                bag.add(index.posting(i));
+            }
+            st.put(new String(index.noun(id).toCharArray()), bag);
+        }
+        long stBytes = usedMemory() - before;
+
+        // nine hits for one miss, fresh strings so cached hash codes do not help either side
+        String[] words = new String[lookups];
+        for (int i = 0; i < lookups; i++) {
+            String noun = index.noun(StdRandom.uniformInt(index.size()));
+            words[i] = StdRandom.bernoulli(0.1) ? noun + "x" : new String(noun.toCharArray());
+        }
+
+        StdOut.println("vertices: " + V + ", nouns: " + index.size() + ", lookups: " + lookups);
+        StdOut.printf("%-28s %12s %12s\n", "noun table", "memory(KB)", "lookups/s");
+
+        double stRate = 0;
+        double indexRate = 0;
+        for (int round = 0; round < 2; round++) {
+            long stSum = 0;
+            Stopwatch stopwatch = new Stopwatch();
+            for (String word : words) {
+                if (!st.contains(word)) continue;
+                for (int v : st.get(word)) stSum += v;
+            }
+            stRate = lookups / Math.max(stopwatch.elapsedTime(), 1e-3);
+
+            long indexSum = 0;
+            stopwatch = new Stopwatch();
+            for (String word : words) {
+                int id = index.id(word);
+                if (id < 0) continue;
+                for (int i = index.begin(id); i < index.end(id); i++) indexSum += index.posting(i);
+            }
+            indexRate = lookups / Math.max(stopwatch.elapsedTime(), 1e-3);
+
+            if (stSum != indexSum) throw new IllegalStateException("lookups differ");
+        }
+
+        StdOut.printf("%-28s %12d %12.0f\n", "SeparateChainingHashST+Bag", stBytes / 1024, stRate);
+        StdOut.printf("%-28s %12d %12.0f\n", "NounIndex", indexBytes / 1024, indexRate);
+    }
+
+    // the recursive root check WordNet ran after DirectedCycle before the one pass validator
+    private static int recursiveRoot(CSRDigraph G, int v, boolean[] marked, int root) {
+        marked[v] = true;
+        if (G.begin(v) == G.end(v)) return root == -1 || root == v ? v : -2;
+
+        for (int i = G.begin(v); i < G.end(v) && root != -2; i++) {
+            int w = G.target(i);
+            if (!marked[w]) root = recursiveRoot(G, w, marked, root);
+        }
+
+        return root;
+    }
+
+    // DirectedCycle on a Digraph copy plus the recursive root check
+    private static boolean twoPass(CSRDigraph G) {
+        Digraph digraph = new Digraph(G.V());
+        for (int v = 0; v < G.V(); v++) {
+            for (int i = G.begin(v); i < G.end(v); i++) {
+                digraph.addEdge(v, G.target(i));
+            }
+        }
+        if (new DirectedCycle(digraph).hasCycle()) return false;
+
+        boolean[] marked = new boolean[G.V()];
+        int root = -1;
+        for (int v = 0; v < G.V() && root != -2; v++) {
+            if (!marked[v]) root = recursiveRoot(G, v, marked, root);
+        }
+
+        return root >= 0;
+    }
+
+    // a single chain rooted at V - 1, so a DFS from vertex 0 goes V deep: the worst case for recursion
+    private static Digraph chain(int V) {
+        Digraph digraph = new Digraph(V);
+        for (int v = 0; v + 1 < V; v++) {
+            digraph.addEdge(v, v + 1);
+        }
+
+        return digraph;
+    }
+
+    // two pass recursive validation vs one pass Kahn, sequential and on 1..maxThreads pool workers
+    private static void validate(int maxThreads) {
+        String[] names = {"random 82k", "random 2M", "deep 82k", "chain 1M"};
+        Digraph[] graphs = {randomTaxonomy(WORDNET_SYNSETS), randomTaxonomy(2000000), deepTaxonomy(WORDNET_SYNSETS),
+                chain(1000000)};
+
+        StdOut.println("cores: " + Runtime.getRuntime().availableProcessors());
+        StdOut.printf("%-12s %14s %12s", "graph", "two pass(ms)", "Kahn(ms)");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            StdOut.printf(" %12s", "par " + threads + "(ms)");
+        }
+        StdOut.println();
+
+        for (int g = 0; g < graphs.length; g++) {
+            CSRDigraph G = new CSRDigraph(graphs[g]);
+
+            // best of three rounds, the first one also warms up the JIT
+            String twoPass = "";
+            double best = Double.MAX_VALUE;
+            double kahn = Double.MAX_VALUE;
+            double[] parallel = new double[32];
+            Arrays.fill(parallel, Double.MAX_VALUE);
+            for (int round = 0; round < 3; round++) {
+                Stopwatch stopwatch = new Stopwatch();
+                try {
+                    if (!twoPass(G)) throw new IllegalStateException("not rooted");
+                    best = Math.min(best, stopwatch.elapsedTime() * 1000);
+                    twoPass = String.format("%.0f", best);
+                } catch (StackOverflowError e) {
+                    twoPass = "stack overflow";
+                }
+
+                stopwatch = new Stopwatch();
+                if (!new DirectedRooted(G).isRooted()) throw new IllegalStateException("not rooted");
+                kahn = Math.min(kahn, stopwatch.elapsedTime() * 1000);
+
+                for (int threads = 1, k = 0; threads <= maxThreads; threads *= 2, k++) {
+                    ForkJoinPool pool = new ForkJoinPool(threads);
+                    stopwatch = new Stopwatch();
+                    if (!new DirectedRooted(G, pool).isRooted()) throw new IllegalStateException("not rooted");
+                    parallel[k] = Math.min(parallel[k], stopwatch.elapsedTime() * 1000);
+                    pool.shutdown();
+                }
+            }
+
+            StdOut.printf("%-12s %14s %12.0f", names[g], twoPass, kahn);
+            for (int threads = 1, k = 0; threads <= maxThreads; threads *= 2, k++) {
+                StdOut.printf(" %12.0f", parallel[k]);
+            }
+            StdOut.println();
+        }
+    }
+
+    // latency of incremental updates vs building a new WordNet from the files
+    private static void update(int V, int updates) {
+        String[] files = writeTaxonomy(randomTaxonomy(V));
+        new WordNet(files[0], files[1]);
+
+        double rebuild = Double.MAX_VALUE;
+        for (int round = 0; round < 3; round++) {
+            Stopwatch stopwatch = new Stopwatch();
+            new WordNet(files[0], files[1]);
+            rebuild = Math.min(rebuild, stopwatch.elapsedTime() * 1000);
+        }
+
+        WordNet wordNet = new WordNet(files[0], files[1]);
+        String[] nouns = nounArray(wordNet);
+        for (int i = 0; i < 1000; i++) {
+            wordNet.distance(nouns[StdRandom.uniformInt(nouns.length)], nouns[StdRandom.uniformInt(nouns.length)]);
+        }
+
+        // the first update also builds the topological ranks
+        Stopwatch stopwatch = new Stopwatch();
+        wordNet.addSynset("first", 0);
+        double first = stopwatch.elapsedTime() * 1000;
+
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < updates; i++) {
+            String synset = "new" + i + " " + nouns[StdRandom.uniformInt(nouns.length)];
+            wordNet.addSynset(synset, StdRandom.uniformInt(wordNet.synsets()));
+        }
+        double addSynset = stopwatch.elapsedTime() * 1000 / updates;
+
+        int rejected = 0;
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < updates; i++) {
+            try {
+                wordNet.addHypernym(StdRandom.uniformInt(wordNet.synsets()), StdRandom.uniformInt(wordNet.synsets()));
+            } catch (IllegalArgumentException e) {
+                rejected++;
+            }
+        }
+        double addHypernym = stopwatch.elapsedTime() * 1000 / updates;
+
+        // an update is followed by a query, whose thread sets up search state for the new graph
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < updates; i++) {
+            wordNet.addSynset("query" + i, StdRandom.uniformInt(wordNet.synsets()));
+            wordNet.distance(nouns[StdRandom.uniformInt(nouns.length)], "query" + i);
+        }
+        double withQuery = stopwatch.elapsedTime() * 1000 / updates;
+
+        StdOut.println("vertices: " + V + ", updates: " + updates + " each, cycles rejected: " + rejected);
+        StdOut.printf("%-30s %12s\n", "operation", "latency(ms)");
+        StdOut.printf("%-30s %12.1f\n", "full rebuild from files", rebuild);
+        StdOut.printf("%-30s %12.3f\n", "first update (builds ranks)", first);
+        StdOut.printf("%-30s %12.3f\n", "addSynset", addSynset);
+        StdOut.printf("%-30s %12.3f\n", "addHypernym", addHypernym);
+        StdOut.printf("%-30s %12.3f\n", "addSynset + first query", withQuery);
+    }
+
+    // k nearest nouns by search vs the distance to every noun followed by a sort
+    private static void nearest(int V, int queries) {
+        String[] files = writeTaxonomy(randomTaxonomy(V));
+        WordNet wordNet = new WordNet(files[0], files[1], 0);
+        String[] nouns = nounArray(wordNet);
+        String[] sources = new String[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = nouns[StdRandom.uniformInt(nouns.length)];
+        }
+
+        // brute force, kept to check the searches: sorted distances from each source to all other nouns
+        int[][] expected = new int[queries][];
+        Stopwatch stopwatch = new Stopwatch();
+        for (int q = 0; q < queries; q++) {
+            int[] distances = new int[nouns.length - 1];
+            int n = 0;
+            for (String noun : nouns) {
+                if (!noun.equals(sources[q])) distances[n++] = wordNet.distance(sources[q], noun);
+            }
+            Arrays.sort(distances);
+            expected[q] = distances;
+        }
+        double brute = stopwatch.elapsedTime() * 1000 / queries;
+
+        StdOut.println("vertices: " + V + ", nouns: " + nouns.length + ", queries: " + queries);
+        StdOut.printf("%-8s %14s %14s %10s\n", "k", "brute(ms)", "nearest(ms)", "speedup");
+        for (int k : new int[]{1, 10, 100, 1000}) {
+            // warm up and check: the i-th nearest noun is at the i-th smallest distance
+            for (int q = 0; q < queries; q++) {
+                int i = 0;
+                for (String noun : wordNet.nearest(sources[q], k)) {
+                    if (wordNet.distance(sources[q], noun) != expected[q][i++])
+                        throw new IllegalStateException("wrong neighbour of " + sources[q]);
+                }
+                if (i != k) throw new IllegalStateException("missing neighbours of " + sources[q]);
+            }
+
+            int rounds = 50;
+            stopwatch = new Stopwatch();
+            for (int round = 0; round < rounds; round++) {
+                for (int q = 0; q < queries; q++) {
+                    wordNet.nearest(sources[q], k);
+                }
+            }
+            double search = stopwatch.elapsedTime() * 1000 / (rounds * queries);
+            StdOut.printf("%-8d %14.2f %14.4f %9.0fx\n", k, brute, search, brute / search);
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String mode = args.length > 0 ? args[0] : "csr";
+
+        if (mode.equals("csr")) {
+            csr(args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS);
+        } else if (mode.equals("alloc")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            alloc(V, args.length > 2 ? Integer.parseInt(args[2]) : 200000);
+        } else if (mode.equals("bidirectional")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            bidirectional(V, args.length > 2 ? Integer.parseInt(args[2]) : 100000);
+        } else if (mode.equals("cache")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            int queries = args.length > 2 ? Integer.parseInt(args[2]) : 1000000;
+            cache(V, queries, args.length > 3 ? Double.parseDouble(args[3]) : 1.0);
+        } else if (mode.equals("concurrent")) {
+            int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            concurrent(maxThreads, args.length > 2 ? Integer.parseInt(args[2]) : 200000);
+        } else if (mode.equals("matrix")) {
+            matrix();
+        } else if (mode.equals("outcast")) {
+            int candidates = args.length > 1 ? Integer.parseInt(args[1]) : 4000;
+            outcast(candidates, args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+        } else if (mode.equals("index")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            index(V, args.length > 2 ? Integer.parseInt(args[2]) : 200000);
+        } else if (mode.equals("startup")) {
+            startup(args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS);
+        } else if (mode.equals("snapshot")) {
+            snapshot(args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS);
+        } else if (mode.equals("nouns")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            nouns(V, args.length > 2 ? Integer.parseInt(args[2]) : 2000000);
+        } else if (mode.equals("validate")) {
+            // on a new thread, which gets the default thread stack size instead of the main thread's
+            int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            Thread thread = new Thread(() -> validate(maxThreads));
+            thread.start();
+            thread.join();
+        } else if (mode.equals("update")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            update(V, args.length > 2 ? Integer.parseInt(args[2]) : 2000);
+        } else if (mode.equals("nearest")) {
+            int V = args.length > 1 ? Integer.parseInt(args[1]) : WORDNET_SYNSETS;
+            nearest(V, args.length > 2 ? Integer.parseInt(args[2]) : 20);
+        } else if (mode.equals("coldstart")) {
+            coldStart(args);
+        } else {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+    }
+}
@@ -0,0 +1,739 @@
+import edu.princeton.cs.algs4.StdOut;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+// streaming parser for synsets/hypernyms files: both files are memory-mapped and scanned byte by byte,
+// nouns are interned through an open-addressing table over their UTF-8 bytes and postings and edges
+// go straight into int arrays, no line strings, no split and no boxing.
+// the parsed form can be saved as a binary snapshot and mapped back without parsing or validation;
+// a mapped snapshot is read in place, so processes opening the same file share its pages
+public class WordNetLoader {
+    // files larger than this are mapped window by window
+    private static final int WINDOW = 1 << 30;
+
+    // snapshot header: magic "WNS1", version, then V, E, nounCount, postings, synset text bytes, noun bytes
+    private static final int SNAPSHOT_MAGIC = 0x574e5331;
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int HEADER_INTS = 8;
+
+    private int V;
+
+    // synset v is synsetText[synsetOffsets[v] .. synsetOffsets[v + 1])
+    private byte[] synsetText;
+    private int[] synsetOffsets;
+
+    // distinct nouns in order of first appearance, bytes back to back
+    private int nounCount;
+    private byte[] nounBytes;
+    private int[] nounOffsets;
+    private int[] nounHash;
+
+    // open-addressing table of noun id + 1, 0 marks an empty slot
+    private int[] table;
+
+    // one (noun, synset) pair per token, grouped by noun once parsing is done
+    private int tokens;
+    private int[] tokenNoun;
+    private int[] tokenSynset;
+
+    // synsets of noun id are postings[postingOffsets[id] .. postingOffsets[id + 1]), ascending
+    private int[] postingOffsets;
+    private int[] postings;
+
+    private CSRDigraph graph;
+
+    // sections of a mapped snapshot, read in place instead of the arrays above; null for parsed files
+    // and once the first added synset copied them. snapshot nouns are sorted, a noun id is its rank
+    private Snapshot snapshot;
+
+    private static final class Snapshot {
+        final ByteBuffer synsetText;
+        final IntBuffer synsetOffsets;
+        final ByteBuffer nounBytes;
+        final IntBuffer nounOffsets;
+        final IntBuffer postingOffsets;
+        final IntBuffer postings;
+
+        Snapshot(ByteBuffer synsetText, IntBuffer synsetOffsets, ByteBuffer nounBytes, IntBuffer nounOffsets,
+                 IntBuffer postingOffsets, IntBuffer postings) {
+            this.synsetText = synsetText;
+            this.synsetOffsets = synsetOffsets;
+            this.nounBytes = nounBytes;
+            this.nounOffsets = nounOffsets;
+            this.postingOffsets = postingOffsets;
+            this.postings = postings;
+        }
+    }
+
+    // sequential reader over a memory-mapped file
+    private static final class MappedInput implements AutoCloseable {
+        private final FileChannel channel;
+        private final long length;
+        private long position;
+        private MappedByteBuffer buffer;
+
+        MappedInput(String filename) throws IOException {
+            channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+            length = channel.size();
+            position = 0;
+            buffer = null;
+        }
+
+        // next byte, -1 at end of file
+        int read() throws IOException {
+            if (buffer == null || !buffer.hasRemaining()) {
+                if (position == length) return -1;
+                long size = Math.min(WINDOW, length - position);
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, size);
+                position += size;
+            }
+
+            return buffer.get() & 0xff;
+        }
+
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    private static int[] grow(int[] array, int required) {
+        if (required <= array.length) return array;
+        return Arrays.copyOf(array, Math.max(required, 2 * array.length));
+    }
+
+    private static byte[] grow(byte[] array, int required) {
+        if (required < 0) throw new IllegalArgumentException("input too large");
+        if (required <= array.length) return array;
+        return Arrays.copyOf(array, (int) Math.min(Integer.MAX_VALUE - 8, Math.max(required, 2L * array.length)));
+    }
+
+    private static IllegalArgumentException malformed(String filename, int line) {
+        return new IllegalArgumentException("malformed line " + line + " in " + filename);
+    }
+
+    // id of the noun in nounBytes[from .. to), interning it if new
+    private int intern(int from, int to) {
+        int hash = 0;
+        for (int i = from; i < to; i++) {
+            hash = 31 * hash + nounBytes[i];
+        }
+
+        int mask = table.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (table[slot] != 0) {
+            int id = table[slot] - 1;
+            if (nounHash[id] == hash
+                    && Arrays.equals(nounBytes, nounOffsets[id], nounOffsets[id + 1], nounBytes, from, to)) {
+                return id;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        // new noun: its bytes are already in place at the end of nounBytes
+        int id = nounCount++;
+        nounOffsets = grow(nounOffsets, nounCount + 1);
+        nounHash = grow(nounHash, nounCount);
+        nounOffsets[nounCount] = to;
+        nounHash[id] = hash;
+        table[slot] = id + 1;
+        if (2 * nounCount > table.length) rehash();
+        return id;
+    }
+
+    private void rehash() {
+        table = new int[2 * table.length];
+        int mask = table.length - 1;
+        for (int id = 0; id < nounCount; id++) {
+            int slot = (nounHash[id] ^ (nounHash[id] >>> 16)) & mask;
+            while (table[slot] != 0) slot = (slot + 1) & mask;
+            table[slot] = id + 1;
+        }
+    }
+
+    // lines are "id,noun noun ...,gloss" with ids 0, 1, 2, ... in order
+    private void readSynsets(String filename) throws IOException {
+        synsetText = new byte[1 << 16];
+        synsetOffsets = new int[1 << 10];
+        int textSize = 0;
+
+        nounBytes = new byte[1 << 16];
+        nounOffsets = new int[1 << 10];
+        nounHash = new int[1 << 10];
+        table = new int[1 << 11];
+        tokenNoun = new int[1 << 10];
+        tokenSynset = new int[1 << 10];
+
+        try (MappedInput in = new MappedInput(filename)) {
+            int c = in.read();
+            while (c != -1) {
+                if (c == '\n' || c == '\r') {
+                    c = in.read();
+                    continue;
+                }
+
+                int line = V + 1;
+                int id = 0;
+                int digits = 0;
+                while (c >= '0' && c <= '9') {
+                    if (id > (Integer.MAX_VALUE - 9) / 10) throw malformed(filename, line);
+                    id = 10 * id + (c - '0');
+                    digits++;
+                    c = in.read();
+                }
+                if (digits == 0 || c != ',') throw malformed(filename, line);
+                if (id != V) throw new IllegalArgumentException("synset " + id + " out of order in " + filename);
+
+                // synonyms, separated by single spaces, up to the next comma
+                c = in.read();
+                int start = nounOffsets[nounCount];
+                int end = start;
+                while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+                    synsetText = grow(synsetText, textSize + 1);
+                    synsetText[textSize++] = (byte) c;
+
+                    if (c == ' ') {
+                        if (end > start) addToken(start, end);
+                        start = nounOffsets[nounCount];
+                        end = start;
+                    } else {
+                        nounBytes = grow(nounBytes, end + 1);
+                        nounBytes[end++] = (byte) c;
+                    }
+                    c = in.read();
+                }
+                if (end > start) addToken(start, end);
+
+                // skip the gloss
+                while (c != '\n' && c != -1) c = in.read();
+
+                V++;
+                synsetOffsets = grow(synsetOffsets, V + 1);
+                synsetOffsets[V] = textSize;
+            }
+        }
+
+        synsetText = Arrays.copyOf(synsetText, textSize);
+        synsetOffsets = Arrays.copyOf(synsetOffsets, V + 1);
+        nounBytes = Arrays.copyOf(nounBytes, nounOffsets[nounCount]);
+    }
+
+    private void addToken(int from, int to) {
+        int noun = intern(from, to);
+        tokenNoun = grow(tokenNoun, tokens + 1);
+        tokenSynset = grow(tokenSynset, tokens + 1);
+        tokenNoun[tokens] = noun;
+        tokenSynset[tokens++] = V;
+    }
+
+    // counting sort of the tokens by noun, synsets stay in file order
+    private void buildPostings() {
+        postingOffsets = new int[nounCount + 1];
+        for (int i = 0; i < tokens; i++) {
+            postingOffsets[tokenNoun[i] + 1]++;
+        }
+        for (int id = 0; id < nounCount; id++) {
+            postingOffsets[id + 1] += postingOffsets[id];
+        }
+
+        postings = new int[tokens];
+        int[] next = Arrays.copyOf(postingOffsets, nounCount);
+        for (int i = 0; i < tokens; i++) {
+            postings[next[tokenNoun[i]]++] = tokenSynset[i];
+        }
+
+        tokenNoun = null;
+        tokenSynset = null;
+        nounHash = null;
+        table = null;
+    }
+
+    // lines are "v,w,w,..." listing the hypernyms of v; edges keep file order
+    private void readHypernyms(String filename) throws IOException {
+        int[] from = new int[1 << 10];
+        int[] to = new int[1 << 10];
+        int E = 0;
+        int line = 0;
+
+        try (MappedInput in = new MappedInput(filename)) {
+            int c = in.read();
+            while (c != -1) {
+                if (c == '\n' || c == '\r') {
+                    c = in.read();
+                    continue;
+                }
+
+                line++;
+                int v = -1;
+                while (true) {
+                    int x = 0;
+                    int digits = 0;
+                    while (c >= '0' && c <= '9') {
+                        if (x > (Integer.MAX_VALUE - 9) / 10) throw malformed(filename, line);
+                        x = 10 * x + (c - '0');
+                        digits++;
+                        c = in.read();
+                    }
+                    if (digits == 0) throw malformed(filename, line);
+                    if (x >= V) throw new IllegalArgumentException("vertex " + x + " is not between 0 and " + (V - 1));
+
+                    if (v == -1) {
+                        v = x;
+                    } else {
+                        from = grow(from, E + 1);
+                        to = grow(to, E + 1);
+                        from[E] = v;
+                        to[E++] = x;
+                    }
+
+                    if (c != ',') break;
+                    c = in.read();
+                }
+
+                if (c == '\r') c = in.read();
+                if (c != '\n' && c != -1) throw malformed(filename, line);
+            }
+        }
+
+        int[] offsets = new int[V + 1];
+        for (int e = 0; e < E; e++) {
+            offsets[from[e] + 1]++;
+        }
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] += offsets[v];
+        }
+
+        int[] targets = new int[E];
+        int[] next = Arrays.copyOf(offsets, V);
+        for (int e = 0; e < E; e++) {
+            targets[next[from[e]]++] = to[e];
+        }
+
+        graph = new CSRDigraph(V, offsets, targets);
+    }
+
+    private WordNetLoader() { }
+
+    // parse both files
+    public static WordNetLoader load(String synsets, String hypernyms) {
+        if (synsets == null) throw new IllegalArgumentException("synsets is null");
+        if (hypernyms == null) throw new IllegalArgumentException("hypernyms is null");
+
+        WordNetLoader loader = new WordNetLoader();
+        try {
+            loader.readSynsets(synsets);
+            loader.buildPostings();
+            loader.readHypernyms(hypernyms);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return loader;
+    }
+
+    // bytes of a section of n ints or n bytes padded to a multiple of 4
+    private static long ints(long n) {
+        return 4 * n;
+    }
+
+    private static long bytes(long n) {
+        return (n + 3) & ~3L;
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+
+    private static void writeInts(FileChannel channel, int[] a, int n) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) ints(n)).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.asIntBuffer().put(a, 0, n);
+        write(channel, buffer);
+    }
+
+    // the zero padding is written as well
+    private static void writeBytes(FileChannel channel, byte[] a, int n) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) bytes(n));
+        buffer.put(a, 0, n);
+        buffer.clear();
+        write(channel, buffer);
+    }
+
+    // nondecreasing, starting at 0 or above and ending at end or below
+    private static boolean isOffsets(IntBuffer offsets, int end) {
+        int n = offsets.limit();
+        if (offsets.get(0) < 0 || offsets.get(n - 1) > end) return false;
+        for (int i = 1; i < n; i++) {
+            if (offsets.get(i) < offsets.get(i - 1)) return false;
+        }
+
+        return true;
+    }
+
+    // every value is a vertex between 0 and V - 1
+    private static boolean isVertices(IntBuffer values, int V) {
+        for (int i = 0; i < values.limit(); i++) {
+            int v = values.get(i);
+            if (v < 0 || v >= V) return false;
+        }
+
+        return true;
+    }
+
+    // strings bytes[offsets[i] .. offsets[i + 1]) strictly ascending by unsigned bytes, so binary
+    // search finds every noun; offsets must have been checked
+    private static boolean isSorted(ByteBuffer bytes, IntBuffer offsets) {
+        for (int i = 1; i + 1 < offsets.limit(); i++) {
+            int a = offsets.get(i - 1);
+            int aEnd = offsets.get(i);
+            int b = aEnd;
+            int bEnd = offsets.get(i + 1);
+            while (a < aEnd && b < bEnd && bytes.get(a) == bytes.get(b)) {
+                a++;
+                b++;
+            }
+            if (b == bEnd) return false;
+            if (a < aEnd && (bytes.get(a) & 0xff) > (bytes.get(b) & 0xff)) return false;
+        }
+
+        return true;
+    }
+
+    // view of the next n ints of buffer, which moves past them
+    private static IntBuffer intView(ByteBuffer buffer, int n) {
+        IntBuffer view = buffer.slice().order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+        view.limit(n);
+        buffer.position(buffer.position() + 4 * n);
+        return view.slice();
+    }
+
+    // view of the next n bytes of buffer, which moves past them and their padding
+    private static ByteBuffer byteView(ByteBuffer buffer, int n) {
+        ByteBuffer view = buffer.slice();
+        view.limit(n);
+        buffer.position((int) bytes(buffer.position() + n));
+        return view.slice();
+    }
+
+    private static int[] toArray(IntBuffer view) {
+        int[] a = new int[view.limit()];
+        view.duplicate().get(a);
+        return a;
+    }
+
+    private static byte[] toArray(ByteBuffer view) {
+        byte[] a = new byte[view.limit()];
+        view.duplicate().get(a);
+        return a;
+    }
+
+    // write a little-endian snapshot: CSR edges, synset text, nouns sorted by their UTF-8 bytes
+    // (i.e. by code point) and the postings of each noun
+    public void save(Path path) {
+        if (path == null) throw new IllegalArgumentException("path is null");
+        if (snapshot != null) {
+            heap().save(path);
+            return;
+        }
+
+        // sorted noun table
+        Integer[] order = new Integer[nounCount];
+        for (int id = 0; id < nounCount; id++) {
+            order[id] = id;
+        }
+        Arrays.sort(order, (a, b) -> Arrays.compareUnsigned(nounBytes, nounOffsets[a], nounOffsets[a + 1],
+                nounBytes, nounOffsets[b], nounOffsets[b + 1]));
+
+        byte[] sortedBytes = new byte[nounBytes.length];
+        int[] sortedOffsets = new int[nounCount + 1];
+        int[] sortedPostingOffsets = new int[nounCount + 1];
+        int[] sortedPostings = new int[postings.length];
+        for (int i = 0; i < nounCount; i++) {
+            int id = order[i];
+            int length = nounOffsets[id + 1] - nounOffsets[id];
+            System.arraycopy(nounBytes, nounOffsets[id], sortedBytes, sortedOffsets[i], length);
+            sortedOffsets[i + 1] = sortedOffsets[i] + length;
+
+            int count = postingOffsets[id + 1] - postingOffsets[id];
+            System.arraycopy(postings, postingOffsets[id], sortedPostings, sortedPostingOffsets[i], count);
+            sortedPostingOffsets[i + 1] = sortedPostingOffsets[i] + count;
+        }
+
+        int E = graph.E();
+        int[] offsets = new int[V + 1];
+        int[] targets = new int[E];
+        for (int v = 0; v < V; v++) {
+            offsets[v + 1] = graph.end(v);
+            for (int i = graph.begin(v); i < graph.end(v); i++) {
+                targets[i] = graph.target(i);
+            }
+        }
+
+        long size = ints(HEADER_INTS) + ints(V + 1) + ints(E) + ints(V + 1) + bytes(synsetText.length)
+                + ints(nounCount + 1) + bytes(nounBytes.length) + ints(nounCount + 1) + ints(postings.length);
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("snapshot larger than 2 GB");
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            int[] header = {SNAPSHOT_MAGIC, SNAPSHOT_VERSION, V, E, nounCount, postings.length,
+                    synsetText.length, nounBytes.length};
+            writeInts(channel, header, HEADER_INTS);
+            writeInts(channel, offsets, V + 1);
+            writeInts(channel, targets, E);
+            writeInts(channel, synsetOffsets, V + 1);
+            writeBytes(channel, synsetText, synsetText.length);
+            writeInts(channel, sortedOffsets, nounCount + 1);
+            writeBytes(channel, sortedBytes, sortedBytes.length);
+            writeInts(channel, sortedPostingOffsets, nounCount + 1);
+            writeInts(channel, sortedPostings, sortedPostings.length);
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // map a snapshot written by save. the graph, synsets, nouns and postings stay views of the mapping,
+    // nouns are found by binary search over the sorted noun table, and nothing is copied to the heap
+    // until a synset is added
+    public static WordNetLoader open(Path path) {
+        if (path == null) throw new IllegalArgumentException("path is null");
+
+        WordNetLoader loader = new WordNetLoader();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < ints(HEADER_INTS) || size > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("not a WordNet snapshot: " + path);
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+            IntBuffer header = buffer.asIntBuffer();
+            if (header.get(0) != SNAPSHOT_MAGIC) throw new IllegalArgumentException("not a WordNet snapshot: " + path);
+            if (header.get(1) != SNAPSHOT_VERSION) {
+                throw new IllegalArgumentException("unsupported snapshot version " + header.get(1) + ": " + path);
+            }
+
+            int V = header.get(2);
+            int E = header.get(3);
+            int nounCount = header.get(4);
+            int postingCount = header.get(5);
+            int synsetBytes = header.get(6);
+            int nounBytes = header.get(7);
+            long expected = ints(HEADER_INTS) + ints(V + 1L) + ints(E) + ints(V + 1L) + bytes(synsetBytes)
+                    + ints(nounCount + 1L) + bytes(nounBytes) + ints(nounCount + 1L) + ints(postingCount);
+            if (V < 0 || E < 0 || nounCount < 0 || postingCount < 0 || synsetBytes < 0 || nounBytes < 0
+                    || expected != size) {
+                throw new IllegalArgumentException("truncated or corrupt snapshot: " + path);
+            }
+            buffer.position((int) ints(HEADER_INTS));
+
+            IntBuffer offsets = intView(buffer, V + 1);
+            IntBuffer targets = intView(buffer, E);
+            IntBuffer synsetOffsets = intView(buffer, V + 1);
+            ByteBuffer synsetText = byteView(buffer, synsetBytes);
+            IntBuffer nounOffsets = intView(buffer, nounCount + 1);
+            ByteBuffer nounText = byteView(buffer, nounBytes);
+            IntBuffer postingOffsets = intView(buffer, nounCount + 1);
+            IntBuffer postings = intView(buffer, postingCount);
+
+            // sizes alone do not keep a damaged file from indexing out of bounds later, so check every
+            // offset, vertex and the noun order once, O(V + E + postings + noun bytes)
+            if (!isOffsets(offsets, E) || offsets.get(V) != E || !isVertices(targets, V)
+                    || !isOffsets(synsetOffsets, synsetBytes) || !isOffsets(nounOffsets, nounBytes)
+                    || !isSorted(nounText, nounOffsets)
+                    || !isOffsets(postingOffsets, postingCount) || postingOffsets.get(nounCount) != postingCount
+                    || !isVertices(postings, V)) {
+                throw new IllegalArgumentException("truncated or corrupt snapshot: " + path);
+            }
+
+            loader.V = V;
+            loader.nounCount = nounCount;
+            loader.graph = new CSRDigraph(V, offsets, targets);
+            loader.snapshot = new Snapshot(synsetText, synsetOffsets, nounText, nounOffsets, postingOffsets, postings);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+
+        return loader;
+    }
+
+    private WordNetLoader(WordNetLoader that) {
+        V = that.V;
+        synsetText = that.synsetText;
+        synsetOffsets = that.synsetOffsets;
+        nounCount = that.nounCount;
+        nounBytes = that.nounBytes;
+        nounOffsets = that.nounOffsets;
+        postingOffsets = that.postingOffsets;
+        postings = that.postings;
+        graph = that.graph;
+        snapshot = that.snapshot;
+    }
+
+    // this loader with the snapshot sections copied into arrays, the graph is shared
+    private WordNetLoader heap() {
+        if (snapshot == null) return this;
+
+        WordNetLoader copy = new WordNetLoader(this);
+        copy.synsetText = toArray(snapshot.synsetText);
+        copy.synsetOffsets = toArray(snapshot.synsetOffsets);
+        copy.nounBytes = toArray(snapshot.nounBytes);
+        copy.nounOffsets = toArray(snapshot.nounOffsets);
+        copy.postingOffsets = toArray(snapshot.postingOffsets);
+        copy.postings = toArray(snapshot.postings);
+        copy.snapshot = null;
+        return copy;
+    }
+
+    // copy with synset V appended: its tokens have noun ids nounIds, ids from nounCount() on are the
+    // new nouns in order of added, and its hypernyms are given. arrays that change are copied,
+    // the rest is shared, so readers of this loader are not disturbed. the sections of a snapshot are
+    // copied into arrays first, later copies share those
+    WordNetLoader withSynset(String synset, int[] nounIds, String[] added, int[] hypernyms) {
+        if (snapshot != null) return heap().withSynset(synset, nounIds, added, hypernyms);
+
+        WordNetLoader next = new WordNetLoader(this);
+        next.V = V + 1;
+        next.graph = graph.withVertex(hypernyms);
+
+        byte[] text = synset.getBytes(StandardCharsets.UTF_8);
+        int textSize = synsetOffsets[V];
+        next.synsetText = Arrays.copyOf(synsetText, textSize + text.length);
+        System.arraycopy(text, 0, next.synsetText, textSize, text.length);
+        next.synsetOffsets = Arrays.copyOf(synsetOffsets, V + 2);
+        next.synsetOffsets[V + 1] = textSize + text.length;
+
+        if (added.length > 0) {
+            next.nounCount = nounCount + added.length;
+            next.nounOffsets = Arrays.copyOf(nounOffsets, next.nounCount + 1);
+            byte[][] bytes = new byte[added.length][];
+            int size = nounOffsets[nounCount];
+            for (int i = 0; i < added.length; i++) {
+                bytes[i] = added[i].getBytes(StandardCharsets.UTF_8);
+                next.nounOffsets[nounCount + i + 1] = next.nounOffsets[nounCount + i] + bytes[i].length;
+            }
+            next.nounBytes = Arrays.copyOf(nounBytes, next.nounOffsets[next.nounCount]);
+            for (int i = 0; i < added.length; i++) {
+                System.arraycopy(bytes[i], 0, next.nounBytes, size, bytes[i].length);
+                size += bytes[i].length;
+            }
+        }
+
+        // the new synset has the largest id, so it goes at the end of each of its nouns' postings
+        int[] ids = nounIds.clone();
+        Arrays.sort(ids);
+        next.postings = new int[postings.length + ids.length];
+        int src = 0;
+        int dst = 0;
+        for (int id : ids) {
+            int end = id < nounCount ? postingOffsets[id + 1] : postings.length;
+            System.arraycopy(postings, src, next.postings, dst, end - src);
+            dst += end - src;
+            src = end;
+            next.postings[dst++] = V;
+        }
+        System.arraycopy(postings, src, next.postings, dst, postings.length - src);
+
+        next.postingOffsets = new int[next.nounCount + 1];
+        int shift = 0;
+        int j = 0;
+        for (int id = 0; id < next.nounCount; id++) {
+            next.postingOffsets[id] = (id < nounCount ? postingOffsets[id] : postings.length) + shift;
+            while (j < ids.length && ids[j] == id) {
+                shift++;
+                j++;
+            }
+        }
+        next.postingOffsets[next.nounCount] = next.postings.length;
+
+        return next;
+    }
+
+    // copy with hypernym edge v -> w added, only the graph is copied
+    WordNetLoader withHypernym(int v, int w) {
+        WordNetLoader next = new WordNetLoader(this);
+        next.graph = graph.withEdge(v, w);
+        return next;
+    }
+
+    // number of synsets
+    public int V() {
+        return V;
+    }
+
+    // synonym field of synset v, decoded on demand
+    public String synset(int v) {
+        if (v < 0 || v >= V) throw new IllegalArgumentException("synset " + v + " is not between 0 and " + (V - 1));
+        if (snapshot != null) return decode(snapshot.synsetText, snapshot.synsetOffsets, v);
+        return new String(synsetText, synsetOffsets[v], synsetOffsets[v + 1] - synsetOffsets[v], StandardCharsets.UTF_8);
+    }
+
+    // string i of a mapped section
+    private static String decode(ByteBuffer text, IntBuffer offsets, int i) {
+        byte[] bytes = new byte[offsets.get(i + 1) - offsets.get(i)];
+        for (int k = 0; k < bytes.length; k++) {
+            bytes[k] = text.get(offsets.get(i) + k);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // number of distinct nouns
+    public int nounCount() {
+        return nounCount;
+    }
+
+    public String noun(int id) {
+        if (id < 0 || id >= nounCount) throw new IllegalArgumentException("noun " + id + " is not between 0 and " + (nounCount - 1));
+        if (snapshot != null) return decode(snapshot.nounBytes, snapshot.nounOffsets, id);
+        return new String(nounBytes, nounOffsets[id], nounOffsets[id + 1] - nounOffsets[id], StandardCharsets.UTF_8);
+    }
+
+    // noun dictionary over the parsed postings, which it shares rather than copies; over a snapshot
+    // it searches the mapped noun table
+    public NounIndex nouns() {
+        if (snapshot != null) {
+            return new NounIndex(snapshot.nounBytes, snapshot.nounOffsets, snapshot.postingOffsets, snapshot.postings);
+        }
+
+        String[] names = new String[nounCount];
+        for (int id = 0; id < nounCount; id++) {
+            names[id] = noun(id);
+        }
+
+        return new NounIndex(names, postingOffsets, postings);
+    }
+
+    // the previous dictionary of this data extended by the nouns added since, sharing its strings
+    NounIndex nouns(NounIndex previous, String[] added) {
+        return previous.withNouns(added, postingOffsets, postings);
+    }
+
+    // hypernym graph
+    public CSRDigraph graph() {
+        return graph;
+    }
+
+    public static void main(String[] args) {
+        WordNetLoader loader = load(args[0], args[1]);
+        StdOut.println("synsets: " + loader.V() + ", nouns: " + loader.nounCount() + ", edges: " + loader.graph().E());
+
+        NounIndex nouns = loader.nouns();
+        for (int id = 0; id < Math.min(10, nouns.size()); id++) {
+            StdOut.print(nouns.noun(id) + ":");
+            for (int i = nouns.begin(id); i < nouns.end(id); i++) {
+                StdOut.print(" " + loader.synset(nouns.posting(i)));
+            }
+            StdOut.println();
+        }
+    }
+}
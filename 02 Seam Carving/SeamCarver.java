@@ -4,10 +4,36 @@ import edu.princeton.cs.algs4.StdRandom;
 import edu.princeton.cs.algs4.Stopwatch;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class SeamCarver {
+    // parallel DP: a chunk has at least MIN_CHUNK columns, a multiple of 64, so neighbouring chunks
+    // share at most the cache line at their boundary in edgeTo and in the cost rows
+    private static final int MIN_CHUNK = 1024;
+
+    // rows per parallel step; a chunk recomputes up to BAND columns of its neighbours' costs on each
+    // side, the dependency cone of the band, instead of waiting for them after every row
+    private static final int BAND = 32;
+
     private final VirtualPicture pic;
 
+    // scratch of findSeam, reused across seams: two rolling cost rows, the energies of one row
+    // and a column step per pixel back to the previous row
+    private final double[] distTo;
+    private final double[] nextDistTo;
+    private final double[] energyRow;
+    private byte[] edgeTo;
+
+    // branch-free row kernels instead of the per-pixel scalar code, same seams either way
+    private final boolean rowKernels;
+
+    // pool of the parallel mode, null for single-threaded; per chunk cost rows and energies
+    private final ForkJoinPool pool;
+    private double[][] chunkPrevious;
+    private double[][] chunkCurrent;
+    private double[][] chunkEnergies;
+
     private void validateSeam(int[] seam) {
         if (seam == null) {
             throw new IllegalArgumentException("seam is null");
@@ -32,68 +58,197 @@ public class SeamCarver {
         }
     }
 
-    // virtual sight
-    private void relaxAdj(double[] distTo, int[] edgeTo, int x, int y) {
-        if (y >= pic.height() - 1) return;
-        int virtualWidth = pic.width();
-        int startX = Math.max(x - 1, 0);
-        int endX = Math.min(x + 2, pic.width());
+    // costs of one row from the previous one, edgeTo[offset + x] is the column step taken to reach x
+    private void relaxRow(double[] previous, double[] current, int offset, int virtualWidth) {
+        for (int x = 0; x < virtualWidth; ++x) {
+            double weight = energyRow[x];
+
+            // predecessors x + 1, x, x - 1 in this order with strict <, so ties go to
+            // the same predecessor as in the diagonal sweep
+            double min = Double.POSITIVE_INFINITY;
+            byte edge = 0;
+            if (x + 1 < virtualWidth && previous[x + 1] + weight < min) {
+                min = previous[x + 1] + weight;
+                edge = 1;
+            }
+            if (previous[x] + weight < min) {
+                min = previous[x] + weight;
+                edge = 0;
+            }
+            if (x > 0 && previous[x - 1] + weight < min) {
+                min = previous[x - 1] + weight;
+                edge = -1;
+            }
+
+            current[x] = min;
+            edgeTo[offset + x] = edge;
+        }
+    }
 
-        for (int adj = startX; adj < endX; ++adj) {
-            // v -> w
-            int v = y * virtualWidth + x;
-            int w = (y + 1) * virtualWidth + adj;
-            double weight = pic.getEnergy(adj, y + 1);
+    // relaxRow for width >= 2: the two border columns apart, the interior has no bounds tests and
+    // selects in place of branches, with the same candidate order and strict comparisons
+    private void relaxRowBranchFree(double[] previous, double[] current, int offset, int virtualWidth) {
+        double weight = energyRow[0];
+        double right = previous[1] + weight;
+        double middle = previous[0] + weight;
+        current[0] = middle < right ? middle : right;
+        edgeTo[offset] = (byte) (middle < right ? 0 : 1);
+
+        for (int x = 1; x < virtualWidth - 1; ++x) {
+            weight = energyRow[x];
+            double min = previous[x + 1] + weight;
+            int edge = 1;
+
+            double sum = previous[x] + weight;
+            boolean less = sum < min;
+            min = less ? sum : min;
+            edge = less ? 0 : edge;
+
+            sum = previous[x - 1] + weight;
+            less = sum < min;
+            min = less ? sum : min;
+            edge = less ? -1 : edge;
+
+            current[x] = min;
+            edgeTo[offset + x] = (byte) edge;
+        }
+
+        int last = virtualWidth - 1;
+        weight = energyRow[last];
+        middle = previous[last] + weight;
+        double left = previous[last - 1] + weight;
+        current[last] = left < middle ? left : middle;
+        edgeTo[offset + last] = (byte) (left < middle ? -1 : 0);
+    }
 
-            if (distTo[v] + weight < distTo[w]) {
-                distTo[w] = distTo[v] + weight;
-                edgeTo[w] = v;
+    // rows 1 .. virtualHeight - 1 in bands of BAND rows, each band one parallel step over column chunks;
+    // returns the cost row of the last row
+    private double[] relaxParallel(double[] previous, double[] next, int virtualWidth, int virtualHeight) {
+        // every energy computed up front, so the chunks only read the energy buffer
+        pic.refreshEnergies(pool);
+
+        int chunkWidth = Math.max(MIN_CHUNK, (virtualWidth / pool.getParallelism() + 63) & ~63);
+        int chunks = (virtualWidth + chunkWidth - 1) / chunkWidth;
+        if (chunkPrevious == null || chunkPrevious.length < chunks || chunkPrevious[0].length < chunkWidth + 2 * BAND) {
+            chunkPrevious = new double[chunks][chunkWidth + 2 * BAND];
+            chunkCurrent = new double[chunks][chunkWidth + 2 * BAND];
+            chunkEnergies = new double[chunks][chunkWidth + 2 * BAND];
+        }
+
+        for (int y = 1; y < virtualHeight; y += BAND) {
+            int y0 = y;
+            int y1 = Math.min(virtualHeight, y + BAND);
+            double[] band = previous;
+            double[] bandEnd = next;
+            pool.submit(() -> IntStream.range(0, chunks).parallel().forEach(c -> {
+                int from = c * chunkWidth;
+                relaxBand(c, from, Math.min(virtualWidth, from + chunkWidth), y0, y1, virtualWidth, band, bandEnd);
+            })).join();
+
+            next = previous;
+            previous = bandEnd;
+        }
+
+        return previous;
+    }
+
+    // costs of columns from .. to - 1 for rows y0 .. y1 - 1, starting from the shared cost row y0 - 1 and
+    // ending in the shared row next. row y is computed with a margin of y1 - 1 - y columns on each side,
+    // so each row has the previous costs it needs; arithmetic and candidate order are the ones of
+    // relaxRow, so costs and edges are the same as in a single-threaded pass
+    private void relaxBand(int chunk, int from, int to, int y0, int y1, int virtualWidth,
+                           double[] shared, double[] next) {
+        double[] previous = chunkPrevious[chunk];
+        double[] current = chunkCurrent[chunk];
+        double[] energies = chunkEnergies[chunk];
+
+        // local index of column x is x - base
+        int base = from - BAND;
+        int lo = Math.max(0, from - (y1 - y0));
+        int hi = Math.min(virtualWidth, to + (y1 - y0));
+        System.arraycopy(shared, lo, previous, lo - base, hi - lo);
+
+        for (int y = y0; y < y1; ++y) {
+            lo = Math.max(0, from - (y1 - 1 - y));
+            hi = Math.min(virtualWidth, to + (y1 - 1 - y));
+            pic.getEnergies(y, lo, hi, energies, lo - base);
+            int offset = y * virtualWidth;
+
+            for (int x = lo; x < hi; ++x) {
+                int i = x - base;
+                double weight = energies[i];
+
+                double min = Double.POSITIVE_INFINITY;
+                byte edge = 0;
+                if (x + 1 < virtualWidth && previous[i + 1] + weight < min) {
+                    min = previous[i + 1] + weight;
+                    edge = 1;
+                }
+                if (previous[i] + weight < min) {
+                    min = previous[i] + weight;
+                    edge = 0;
+                }
+                if (x > 0 && previous[i - 1] + weight < min) {
+                    min = previous[i - 1] + weight;
+                    edge = -1;
+                }
+
+                current[i] = min;
+                if (x >= from && x < to) edgeTo[offset + x] = edge;
             }
+
+            double[] swap = previous;
+            previous = current;
+            current = swap;
         }
+
+        System.arraycopy(previous, from - base, next, from, to - from);
     }
 
     // virtual sight
+    // row by row dynamic programming: cost[x] is the cheapest path from the top row to (x, y), only the
+    // previous row is kept and the path is recovered from one byte per pixel (-1, 0 or +1 column step)
     private int[] findSeam() {
         int virtualWidth = pic.width();
         int virtualHeight = pic.height();
 
-        double[] distTo = new double[virtualHeight * virtualWidth];
-        Arrays.fill(distTo, 0, virtualWidth, 0);
-        Arrays.fill(distTo, virtualWidth, distTo.length, Double.POSITIVE_INFINITY);
-
-        int[] edgeTo = new int[virtualWidth * virtualHeight];
-        Arrays.fill(edgeTo, 0, edgeTo.length, -1);
-
-        // topological order, which is constant in this problem
-        // equivalent to dynamic programming
-        for (int i = virtualWidth - 1; i >= 0; --i) {
-            for (int y = 0, x = i; y < virtualHeight && x < virtualWidth; ++y, ++x) {
-                relaxAdj(distTo, edgeTo, x, y);
-            }
+        if (edgeTo.length < virtualWidth * virtualHeight) {
+            edgeTo = new byte[virtualWidth * virtualHeight];
         }
 
-        for (int i = 1; i < virtualHeight; ++i) {
-            for (int y = i, x = 0; y < virtualHeight && x < virtualWidth; ++y, ++x) {
-                relaxAdj(distTo, edgeTo, x, y);
+        double[] previous = distTo;
+        double[] current = nextDistTo;
+        Arrays.fill(previous, 0, virtualWidth, 0);
+
+        if (pool != null && virtualWidth >= 2 * MIN_CHUNK) {
+            previous = relaxParallel(previous, current, virtualWidth, virtualHeight);
+        } else {
+            for (int y = 1; y < virtualHeight; ++y) {
+                pic.getEnergies(y, energyRow);
+                if (rowKernels && virtualWidth > 1) relaxRowBranchFree(previous, current, y * virtualWidth, virtualWidth);
+                else relaxRow(previous, current, y * virtualWidth, virtualWidth);
+
+                double[] swap = previous;
+                previous = current;
+                current = swap;
             }
         }
 
-        int minIndex = -1;
+        int minX = -1;
         double min = Double.POSITIVE_INFINITY;
 
-        for (int index = (virtualHeight - 1) * virtualWidth; index < distTo.length; ++index) {
-            if (distTo[index] < min) {
-                min = distTo[index];
-                minIndex = index;
+        for (int x = 0; x < virtualWidth; ++x) {
+            if (previous[x] < min) {
+                min = previous[x];
+                minX = x;
             }
         }
 
         int[] seam = new int[virtualHeight];
+        seam[virtualHeight - 1] = minX;
 
-        for (int y = virtualHeight - 1; y >= 0; --y) {
-            int x = minIndex % virtualWidth;
-            seam[y] = x;
-            minIndex = edgeTo[minIndex];
+        for (int y = virtualHeight - 1; y > 0; --y) {
+            seam[y - 1] = seam[y] + edgeTo[y * virtualWidth + seam[y]];
         }
 
         return seam;
@@ -104,15 +259,138 @@ public class SeamCarver {
             pic.removePixel(seam[y], y);
         }
         pic.carve();
+        pic.refreshSeam(seam);
+    }
+
+    // costs and edges of columns lo .. hi of row y in the batch matrices, as relaxRow computes them;
+    // returns the first and last column whose cost changed packed as first << 32 | last, -1 if none
+    private long relaxBatch(double[] costs, byte[] edges, int stride, int virtualWidth, int y, int lo, int hi) {
+        pic.getEnergies(y, lo, hi + 1, energyRow, 0);
+        int previous = (y - 1) * stride;
+        int offset = y * stride;
+        int first = -1;
+        int last = -1;
+
+        for (int x = lo; x <= hi; ++x) {
+            double weight = energyRow[x - lo];
+
+            double min = Double.POSITIVE_INFINITY;
+            byte edge = 0;
+            if (x + 1 < virtualWidth && costs[previous + x + 1] + weight < min) {
+                min = costs[previous + x + 1] + weight;
+                edge = 1;
+            }
+            if (costs[previous + x] + weight < min) {
+                min = costs[previous + x] + weight;
+                edge = 0;
+            }
+            if (x > 0 && costs[previous + x - 1] + weight < min) {
+                min = costs[previous + x - 1] + weight;
+                edge = -1;
+            }
+
+            if (costs[offset + x] != min) {
+                if (first < 0) first = x;
+                last = x;
+            }
+            costs[offset + x] = min;
+            edges[offset + x] = edge;
+        }
+
+        return first < 0 ? -1 : (long) first << 32 | last;
+    }
+
+    // remove k seams of the current direction, the ones k rounds of find and remove would pick.
+    // the cost matrix is kept across seams: after a removal its rows are shifted like the pixels and
+    // only costs that can differ are recomputed, the neighbourhood of the seam plus, row by row, the
+    // columns below a cost that changed. the buffers are first transposed if seams would cross them
+    private void removeSeams(int k) {
+        if (k < 0 || k >= pic.width()) {
+            throw new IllegalArgumentException("k must be between 0 and " + (pic.width() - 1));
+        }
+        if (k == 0) return;
+
+        if (!pic.rowMajor()) pic.transposeBuffers();
+
+        int stride = pic.width();
+        int virtualHeight = pic.height();
+        double[] costs = new double[stride * virtualHeight];
+        byte[] edges = new byte[stride * virtualHeight];
+        for (int y = 1; y < virtualHeight; ++y) {
+            relaxBatch(costs, edges, stride, stride, y, 0, stride - 1);
+        }
+
+        int[] seam = new int[virtualHeight];
+        for (int i = 0; i < k; ++i) {
+            int virtualWidth = pic.width();
+            int last = (virtualHeight - 1) * stride;
+            int minX = 0;
+            for (int x = 1; x < virtualWidth; ++x) {
+                if (costs[last + x] < costs[last + minX]) minX = x;
+            }
+
+            seam[virtualHeight - 1] = minX;
+            for (int y = virtualHeight - 1; y > 0; --y) {
+                seam[y - 1] = seam[y] + edges[y * stride + seam[y]];
+            }
+
+            removeSeam(seam);
+            for (int y = 0; y < virtualHeight; ++y) {
+                int at = y * stride + seam[y];
+                System.arraycopy(costs, at + 1, costs, at, virtualWidth - 1 - seam[y]);
+                System.arraycopy(edges, at + 1, edges, at, virtualWidth - 1 - seam[y]);
+            }
+            virtualWidth--;
+
+            // energies change next to the seam and predecessors change between seam[y - 1] and seam[y],
+            // two columns of margin cover both; below that only changed costs propagate, one column a row
+            int changedFirst = Integer.MAX_VALUE;
+            int changedLast = Integer.MIN_VALUE;
+            for (int y = 1; y < virtualHeight; ++y) {
+                int a = Math.min(seam[y - 1], seam[y]);
+                int b = Math.max(seam[y - 1], seam[y]);
+                if (y + 1 < virtualHeight) {
+                    a = Math.min(a, seam[y + 1]);
+                    b = Math.max(b, seam[y + 1]);
+                }
+
+                int lo = Math.max(0, Math.min(a - 2, changedFirst - 1));
+                int hi = Math.min(virtualWidth - 1, Math.max(b + 2, changedLast + 1));
+                long changed = relaxBatch(costs, edges, stride, virtualWidth, y, lo, hi);
+                changedFirst = changed < 0 ? Integer.MAX_VALUE : (int) (changed >>> 32);
+                changedLast = changed < 0 ? Integer.MIN_VALUE : (int) changed;
+            }
+        }
     }
 
     // create a seam carver object based on the given picture
     public SeamCarver(Picture picture) {
+        this(picture, false);
+    }
+
+    SeamCarver(Picture picture, boolean rowKernels) {
+        this(picture, rowKernels, null);
+    }
+
+    // pool == null finds seams single-threaded, otherwise wide pictures are split into column chunks
+    SeamCarver(Picture picture, ForkJoinPool pool) {
+        this(picture, false, pool);
+    }
+
+    SeamCarver(Picture picture, boolean rowKernels, ForkJoinPool pool) {
         if (picture == null) {
             throw new IllegalArgumentException();
         }
 
-        pic = new VirtualPicture(picture);
+        pic = new VirtualPicture(picture, rowKernels);
+        this.rowKernels = rowKernels;
+        this.pool = pool;
+
+        int length = Math.max(picture.width(), picture.height());
+        distTo = new double[length];
+        nextDistTo = new double[length];
+        energyRow = new double[length];
+        edgeTo = new byte[0];
     }
 
     // current picture
@@ -173,6 +451,18 @@ public class SeamCarver {
         removeSeam(seam);
     }
 
+    // remove k vertical seams, the same as k calls of removeVerticalSeam(findVerticalSeam())
+    public void removeVerticalSeams(int k) {
+        pic.transpose(VirtualPicture.ORIGIN);
+        removeSeams(k);
+    }
+
+    // remove k horizontal seams, the same as k calls of removeHorizontalSeam(findHorizontalSeam())
+    public void removeHorizontalSeams(int k) {
+        pic.transpose(VirtualPicture.TRANSPOSED);
+        removeSeams(k);
+    }
+
     public String toString() {
         StringBuilder s = new StringBuilder();
         s.append("Width: ").append(width()).append("\n");
@@ -0,0 +1,267 @@
+import edu.princeton.cs.algs4.Picture;
+import edu.princeton.cs.algs4.StdOut;
+import edu.princeton.cs.algs4.StdRandom;
+import edu.princeton.cs.algs4.Stopwatch;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+// benchmark client for SeamCarver on synthetic pictures (gradients, a checkerboard and noise)
+// usage: java SeamCarverBenchmark dp [seams]
+//        java SeamCarverBenchmark kernels [seams]
+//        java SeamCarverBenchmark parallel [maxThreads] [seams]
+//        java SeamCarverBenchmark batch [width] [height] [shrink]
+public class SeamCarverBenchmark {
+    private static final int[][] SIZES = {{1920, 1080}, {3840, 2160}};
+
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    // bytes allocated so far by the calling thread
+    private static long allocatedBytes() {
+        return THREADS.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    static Picture randomPicture(int width, int height) {
+        Picture picture = new Picture(width, height);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 255 / width + StdRandom.uniformInt(8)) & 0xFF;
+                int g = (y * 255 / height) & 0xFF;
+                int b = (x / 16 + y / 16) % 2 == 0 ? 40 : 200;
+                if (StdRandom.bernoulli(0.1)) b = 120;
+                picture.setARGB(x, y, 0xFF000000 | r << 16 | g << 8 | b);
+            }
+        }
+
+        return picture;
+    }
+
+    // the former diagonal sweep: relax each pixel's three lower neighbours, diagonal by diagonal,
+    // over fresh W * H distTo/edgeTo arrays
+    private static int[] diagonalSeam(SeamCarver carver) {
+        int width = carver.width();
+        int height = carver.height();
+
+        double[] distTo = new double[height * width];
+        Arrays.fill(distTo, width, distTo.length, Double.POSITIVE_INFINITY);
+        int[] edgeTo = new int[width * height];
+        Arrays.fill(edgeTo, -1);
+
+        for (int i = width - 1; i > -height; --i) {
+            for (int y = Math.max(0, -i), x = i + y; y < height && x < width; ++y, ++x) {
+                if (y >= height - 1) continue;
+                for (int adj = Math.max(x - 1, 0); adj < Math.min(x + 2, width); ++adj) {
+                    int v = y * width + x;
+                    int w = (y + 1) * width + adj;
+                    double weight = carver.energy(adj, y + 1);
+                    if (distTo[v] + weight < distTo[w]) {
+                        distTo[w] = distTo[v] + weight;
+                        edgeTo[w] = v;
+                    }
+                }
+            }
+        }
+
+        int minIndex = -1;
+        double min = Double.POSITIVE_INFINITY;
+        for (int index = (height - 1) * width; index < distTo.length; ++index) {
+            if (distTo[index] < min) {
+                min = distTo[index];
+                minIndex = index;
+            }
+        }
+
+        int[] seam = new int[height];
+        for (int y = height - 1; y >= 0; --y) {
+            seam[y] = minIndex % width;
+            minIndex = edgeTo[minIndex];
+        }
+
+        return seam;
+    }
+
+    // vertical seams per second and bytes allocated per seam, diagonal sweep vs row by row DP;
+    // each seam found is removed, so energies along it are recomputed as in real carving
+    private static void dp(int seams) {
+        StdOut.printf("%-12s %-10s %12s %14s\n", "picture", "seam DP", "seams/s", "bytes/seam");
+        for (int[] size : SIZES) {
+            Picture picture = randomPicture(size[0], size[1]);
+            String name = size[0] + "x" + size[1];
+
+            // first round warms up the JIT
+            for (int round = 0; round < 2; round++) {
+                SeamCarver diagonal = new SeamCarver(picture);
+                SeamCarver rows = new SeamCarver(picture);
+                double diagonalTime = 0;
+                double rowsTime = 0;
+                long diagonalBytes = 0;
+                long rowsBytes = 0;
+
+                for (int i = 0; i < seams; i++) {
+                    long bytes = allocatedBytes();
+                    Stopwatch stopwatch = new Stopwatch();
+                    int[] expected = diagonalSeam(diagonal);
+                    diagonalTime += stopwatch.elapsedTime();
+                    diagonalBytes += allocatedBytes() - bytes;
+
+                    bytes = allocatedBytes();
+                    stopwatch = new Stopwatch();
+                    int[] seam = rows.findVerticalSeam();
+                    rowsTime += stopwatch.elapsedTime();
+                    rowsBytes += allocatedBytes() - bytes;
+
+                    if (!Arrays.equals(seam, expected)) throw new IllegalStateException("seams differ");
+                    diagonal.removeVerticalSeam(expected);
+                    rows.removeVerticalSeam(seam);
+                }
+
+                if (round == 1) {
+                    StdOut.printf("%-12s %-10s %12.2f %14d\n", name, "diagonal", seams / diagonalTime,
+                            diagonalBytes / seams);
+                    StdOut.printf("%-12s %-10s %12.2f %14d\n", name, "rows", seams / rowsTime, rowsBytes / seams);
+                }
+            }
+        }
+    }
+
+    // scalar per-pixel code vs branch-free row kernels: the first seam, which computes every energy,
+    // and the following seams, alternating vertical and horizontal; seams must be the same
+    private static void kernels(int seams) {
+        StdOut.printf("%-12s %-8s %14s %12s\n", "picture", "code", "first seam(ms)", "seams/s");
+        for (int[] size : SIZES) {
+            Picture picture = randomPicture(size[0], size[1]);
+            String name = size[0] + "x" + size[1];
+
+            // best of three rounds, the first one also warms up the JIT
+            double[] first = {Double.MAX_VALUE, Double.MAX_VALUE};
+            double[] rest = {Double.MAX_VALUE, Double.MAX_VALUE};
+            for (int round = 0; round < 3; round++) {
+                SeamCarver[] carvers = {new SeamCarver(picture, false), new SeamCarver(picture, true)};
+                int[][] expected = new int[seams][];
+                for (int k = 0; k < 2; k++) {
+                    SeamCarver carver = carvers[k];
+                    Stopwatch stopwatch = new Stopwatch();
+                    int[] seam = carver.findVerticalSeam();
+                    first[k] = Math.min(first[k], stopwatch.elapsedTime() * 1000);
+                    carver.removeVerticalSeam(seam);
+
+                    stopwatch = new Stopwatch();
+                    for (int i = 0; i < seams; i++) {
+                        seam = i % 2 == 0 ? carver.findHorizontalSeam() : carver.findVerticalSeam();
+                        if (k == 0) expected[i] = seam;
+                        else if (!Arrays.equals(seam, expected[i])) throw new IllegalStateException("seams differ");
+
+                        if (i % 2 == 0) carver.removeHorizontalSeam(seam);
+                        else carver.removeVerticalSeam(seam);
+                    }
+                    rest[k] = Math.min(rest[k], stopwatch.elapsedTime());
+                }
+            }
+
+            StdOut.printf("%-12s %-8s %14.0f %12.2f\n", name, "scalar", first[0], seams / rest[0]);
+            StdOut.printf("%-12s %-8s %14.0f %12.2f\n", name, "kernels", first[1], seams / rest[1]);
+        }
+    }
+
+    // seams per second single-threaded and on pools of 1, 2, 4 .. maxThreads workers, alternating
+    // vertical and horizontal seams; every seam must match the single-threaded one
+    private static void parallel(int maxThreads, int seams) {
+        StdOut.println("cores: " + Runtime.getRuntime().availableProcessors());
+        StdOut.printf("%-12s %12s", "picture", "sequential");
+        for (int threads = 1; threads <= maxThreads; threads *= 2) {
+            StdOut.printf(" %12s", "pool " + threads);
+        }
+        StdOut.println();
+
+        for (int[] size : SIZES) {
+            Picture picture = randomPicture(size[0], size[1]);
+
+            // first round warms up the JIT
+            int[][] expected = new int[seams][];
+            double[] best = new double[32];
+            for (int round = 0; round < 2; round++) {
+                for (int threads = 0, k = 0; threads <= maxThreads; threads = Math.max(1, 2 * threads), k++) {
+                    ForkJoinPool pool = threads == 0 ? null : new ForkJoinPool(threads);
+                    SeamCarver carver = new SeamCarver(picture, pool);
+
+                    Stopwatch stopwatch = new Stopwatch();
+                    for (int i = 0; i < seams; i++) {
+                        int[] seam = i % 2 == 0 ? carver.findVerticalSeam() : carver.findHorizontalSeam();
+                        if (threads == 0) expected[i] = seam;
+                        else if (!Arrays.equals(seam, expected[i])) throw new IllegalStateException("seams differ");
+
+                        if (i % 2 == 0) carver.removeVerticalSeam(seam);
+                        else carver.removeHorizontalSeam(seam);
+                    }
+                    best[k] = Math.max(best[k], seams / stopwatch.elapsedTime());
+                    if (pool != null) pool.shutdown();
+                }
+            }
+
+            StdOut.printf("%-12s", size[0] + "x" + size[1]);
+            for (int threads = 0, k = 0; threads <= maxThreads; threads = Math.max(1, 2 * threads), k++) {
+                StdOut.printf(" %12.2f", best[k]);
+            }
+            StdOut.println();
+        }
+    }
+
+    // shrink width and height by the given fraction: one find and remove per seam vs the batch calls,
+    // which must leave the same picture
+    private static void batch(int width, int height, double shrink) {
+        Picture picture = randomPicture(width, height);
+        int vertical = (int) (width * shrink);
+        int horizontal = (int) (height * shrink);
+        StdOut.println("picture: " + width + "x" + height + ", vertical seams: " + vertical
+                + ", horizontal seams: " + horizontal);
+        StdOut.printf("%-24s %12s %12s %12s\n", "removal", "vertical(s)", "horizontal(s)", "total(s)");
+
+        SeamCarver loop = new SeamCarver(picture);
+        Stopwatch stopwatch = new Stopwatch();
+        for (int i = 0; i < vertical; i++) {
+            loop.removeVerticalSeam(loop.findVerticalSeam());
+        }
+        double loopVertical = stopwatch.elapsedTime();
+        stopwatch = new Stopwatch();
+        for (int i = 0; i < horizontal; i++) {
+            loop.removeHorizontalSeam(loop.findHorizontalSeam());
+        }
+        double loopHorizontal = stopwatch.elapsedTime();
+        StdOut.printf("%-24s %12.1f %12.1f %12.1f\n", "find + remove per seam", loopVertical, loopHorizontal,
+                loopVertical + loopHorizontal);
+
+        SeamCarver batch = new SeamCarver(picture);
+        stopwatch = new Stopwatch();
+        batch.removeVerticalSeams(vertical);
+        double batchVertical = stopwatch.elapsedTime();
+        stopwatch = new Stopwatch();
+        batch.removeHorizontalSeams(horizontal);
+        double batchHorizontal = stopwatch.elapsedTime();
+        StdOut.printf("%-24s %12.1f %12.1f %12.1f\n", "batch", batchVertical, batchHorizontal,
+                batchVertical + batchHorizontal);
+
+        if (!batch.picture().equals(loop.picture())) throw new IllegalStateException("pictures differ");
+        StdOut.printf("speedup: %.1fx\n", (loopVertical + loopHorizontal) / (batchVertical + batchHorizontal));
+    }
+
+    public static void main(String[] args) {
+        String mode = args.length > 0 ? args[0] : "dp";
+
+        if (mode.equals("dp")) {
+            dp(args.length > 1 ? Integer.parseInt(args[1]) : 20);
+        } else if (mode.equals("kernels")) {
+            kernels(args.length > 1 ? Integer.parseInt(args[1]) : 20);
+        } else if (mode.equals("parallel")) {
+            int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+            parallel(maxThreads, args.length > 2 ? Integer.parseInt(args[2]) : 20);
+        } else if (mode.equals("batch")) {
+            int width = args.length > 1 ? Integer.parseInt(args[1]) : 3840;
+            int height = args.length > 2 ? Integer.parseInt(args[2]) : 2160;
+            batch(width, height, args.length > 3 ? Double.parseDouble(args[3]) : 0.5);
+        } else {
+            throw new IllegalArgumentException("unknown mode: " + mode);
+        }
+    }
+}
@@ -1,11 +1,14 @@
 import edu.princeton.cs.algs4.Picture;
 
 import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
 
 public class VirtualPicture {
     public static final boolean ORIGIN = false;
     public static final boolean TRANSPOSED = true;
     private static final double BORDER_ENERGY = 1000;
+    private static final int TILE = 64;
 
     private static int extractR(int argb) {
         return (argb >> 16) & 0xFF;
@@ -19,21 +22,72 @@ public class VirtualPicture {
         return argb & 0xFF;
     }
 
-    private final Picture picture;
-    private final double[][] energies;
+    // pixels and energies in row-major order, pixel (col, row) at row * stride + col. the stride is the
+    // original length of a buffer row, carving only shrinks the used part of each row and column
+    private int[] pixels;
+    private double[] energies;
+    private int stride;
+
+    // buffers hold the transposed picture, "real" coordinates below are buffer coordinates:
+    // virtual rows are buffer rows iff status == swapped
+    private boolean swapped;
+
+    // fill all energies with the row kernel on the first whole-row read, instead of pixel by pixel
+    private final boolean rowKernels;
+    private boolean filled;
     private boolean status;
     private int width;
     private int height;
 
     public VirtualPicture(Picture picture) {
-        this.picture = new Picture(picture);
+        this(picture, false);
+    }
+
+    public VirtualPicture(Picture picture, boolean rowKernels) {
+        this.rowKernels = rowKernels;
         this.status = ORIGIN;
         this.width = picture.width();
         this.height = picture.height();
-        this.energies = new double[picture.width()][picture.height()];
+        this.stride = picture.width();
+        this.pixels = new int[width * height];
+        this.energies = new double[width * height];
+
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                pixels[row * stride + col] = picture.getARGB(col, row);
+            }
+        }
+
+        Arrays.fill(energies, Double.POSITIVE_INFINITY);
+    }
+
+    // energies of a whole real row at once: the border pixels, then one loop over the interior with no
+    // sentinel checks and no branches. as long as whole seams are removed, invalidating the neighbours
+    // keeps every cached energy equal to a fresh one, so recomputing cached pixels changes nothing
+    private void computeEnergies(int realRow) {
+        int begin = realRow * stride;
+        if (realRow == 0 || realRow == height - 1) {
+            Arrays.fill(energies, begin, begin + width, BORDER_ENERGY);
+            return;
+        }
 
-        for (int i = 0; i < picture.width(); i++) {
-            Arrays.fill(energies[i], Double.POSITIVE_INFINITY);
+        energies[begin] = BORDER_ENERGY;
+        energies[begin + width - 1] = BORDER_ENERGY;
+        for (int index = begin + 1; index < begin + width - 1; index++) {
+            int argb1 = pixels[index + 1];
+            int argb2 = pixels[index - 1];
+            int rx = extractR(argb1) - extractR(argb2);
+            int gx = extractG(argb1) - extractG(argb2);
+            int bx = extractB(argb1) - extractB(argb2);
+
+            argb1 = pixels[index + stride];
+            argb2 = pixels[index - stride];
+            int ry = extractR(argb1) - extractR(argb2);
+            int gy = extractG(argb1) - extractG(argb2);
+            int by = extractB(argb1) - extractB(argb2);
+
+            // at most 6 * 255^2, exact as an int and as a double
+            energies[index] = Math.sqrt(rx * rx + gx * gx + bx * bx + ry * ry + gy * gy + by * by);
         }
     }
 
@@ -41,48 +95,79 @@ public class VirtualPicture {
         return status;
     }
 
+    // are virtual rows contiguous in the buffers
+    public boolean rowMajor() {
+        return status == swapped;
+    }
+
+    // transpose both buffers so that virtual rows of the current status become contiguous, in tiles
+    // so that reads and writes both stay within a few cache lines
+    public void transposeBuffers() {
+        int newStride = pixels.length / stride;
+        int[] newPixels = new int[pixels.length];
+        double[] newEnergies = new double[energies.length];
+
+        for (int row0 = 0; row0 < height; row0 += TILE) {
+            for (int col0 = 0; col0 < width; col0 += TILE) {
+                for (int row = row0; row < Math.min(height, row0 + TILE); row++) {
+                    for (int col = col0; col < Math.min(width, col0 + TILE); col++) {
+                        newPixels[col * newStride + row] = pixels[row * stride + col];
+                        newEnergies[col * newStride + row] = energies[row * stride + col];
+                    }
+                }
+            }
+        }
+
+        pixels = newPixels;
+        energies = newEnergies;
+        stride = newStride;
+        int swap = width;
+        width = height;
+        height = swap;
+        swapped = !swapped;
+    }
+
     // internal using width (considering transpose)
     public int width() {
-        return status == ORIGIN ? width : height;
+        return rowMajor() ? width : height;
     }
 
     // internal using height (considering transpose)
     public int height() {
-        return status == ORIGIN ? height : width;
+        return rowMajor() ? height : width;
     }
 
     // remove pixel by virtual coordinate(considering transpose)
     public void removePixel(int virtualCol, int virtualRow) {
-        int realCol = status == ORIGIN ? virtualCol : virtualRow;
-        int realRow = status == ORIGIN ? virtualRow : virtualCol;
+        int realCol = rowMajor() ? virtualCol : virtualRow;
+        int realRow = rowMajor() ? virtualRow : virtualCol;
+        int index = realRow * stride + realCol;
 
         if (realCol > 0) {
-            energies[realCol - 1][realRow] = Double.POSITIVE_INFINITY;
+            energies[index - 1] = Double.POSITIVE_INFINITY;
         }
 
         if (realCol + 1 < width) {
-            energies[realCol + 1][realRow] = Double.POSITIVE_INFINITY;
+            energies[index + 1] = Double.POSITIVE_INFINITY;
         }
 
         if (realRow > 0) {
-            energies[realCol][realRow - 1] = Double.POSITIVE_INFINITY;
-
+            energies[index - stride] = Double.POSITIVE_INFINITY;
         }
 
         if (realRow + 1 < height) {
-            energies[realCol][realRow + 1] = Double.POSITIVE_INFINITY;
-
+            energies[index + stride] = Double.POSITIVE_INFINITY;
         }
 
-        if (status == ORIGIN) {
-            for (int x = realCol; x < width - 1; ++x) {
-                picture.setARGB(x, realRow, picture.getARGB(x + 1, realRow));
-                energies[x][realRow] = energies[x + 1][realRow];
-            }
+        if (rowMajor()) {
+            // rest of the row is contiguous
+            System.arraycopy(pixels, index + 1, pixels, index, width - 1 - realCol);
+            System.arraycopy(energies, index + 1, energies, index, width - 1 - realCol);
         } else {
-            for (int y = realRow; y < height - 1; ++y) {
-                picture.setARGB(realCol, y, picture.getARGB(realCol, y + 1));
-                energies[realCol][y] = energies[realCol][y + 1];
+            int last = (height - 1) * stride + realCol;
+            for (int i = index; i < last; i += stride) {
+                pixels[i] = pixels[i + stride];
+                energies[i] = energies[i + stride];
             }
         }
     }
@@ -92,7 +177,7 @@ public class VirtualPicture {
     }
 
     public void carve() {
-        if (status == ORIGIN) {
+        if (rowMajor()) {
             width--;
         } else {
             height--;
@@ -101,11 +186,12 @@ public class VirtualPicture {
 
     // return real picture
     public Picture picture() {
-        Picture pic = new Picture(width, height);
+        Picture pic = swapped ? new Picture(height, width) : new Picture(width, height);
 
-        for (int col = 0; col < pic.width(); col++) {
-            for (int row = 0; row < pic.height(); row++) {
-                pic.setARGB(col, row, picture.getARGB(col, row));
+        for (int row = 0; row < height; row++) {
+            for (int col = 0; col < width; col++) {
+                if (swapped) pic.setARGB(row, col, pixels[row * stride + col]);
+                else pic.setARGB(col, row, pixels[row * stride + col]);
             }
         }
 
@@ -113,20 +199,86 @@ public class VirtualPicture {
     }
 
     public double getEnergy(int virtualCol, int virtualRow) {
-        int realCol = status == ORIGIN ? virtualCol : virtualRow;
-        int realRow = status == ORIGIN ? virtualRow : virtualCol;
+        int realCol = rowMajor() ? virtualCol : virtualRow;
+        int realRow = rowMajor() ? virtualRow : virtualCol;
+        return energy(realCol, realRow, realRow * stride + realCol);
+    }
+
+    // energies of a whole virtual row into energyRow[0 .. width()), walking the buffers directly:
+    // contiguous if rowMajor(), one stride per pixel otherwise
+    public void getEnergies(int virtualRow, double[] energyRow) {
+        if (rowKernels && !filled) {
+            for (int row = 0; row < height; row++) {
+                computeEnergies(row);
+            }
+            filled = true;
+        }
+
+        getEnergies(virtualRow, 0, width(), energyRow, 0);
+    }
+
+    // energies of virtual columns from .. to - 1 of a virtual row into energyRow[at ..]
+    public void getEnergies(int virtualRow, int from, int to, double[] energyRow, int at) {
+        if (rowMajor()) {
+            int index = virtualRow * stride + from;
+            for (int col = from; col < to; col++, index++) {
+                double e = energies[index];
+                energyRow[at++] = e != Double.POSITIVE_INFINITY ? e : energy(col, virtualRow, index);
+            }
+        } else {
+            int index = from * stride + virtualRow;
+            for (int row = from; row < to; row++, index += stride) {
+                double e = energies[index];
+                energyRow[at++] = e != Double.POSITIVE_INFINITY ? e : energy(virtualRow, row, index);
+            }
+        }
+    }
+
+    // compute the whole energy map once, real rows split across the pool, so readers on several threads
+    // then only read. later removals leave no missing energies behind, see refreshSeam
+    public void refreshEnergies(ForkJoinPool pool) {
+        if (filled) return;
+
+        pool.submit(() -> IntStream.range(0, height).parallel().forEach(this::computeEnergies)).join();
+        filled = true;
+    }
+
+    // recompute the energies invalidated by removing seam (virtual columns by virtual row, removed and
+    // carved). removePixel invalidates the four neighbours of a removed pixel, and after the shifts they
+    // lie in row y between one left of the smallest and the largest of seam[y - 1 .. y + 1], so only
+    // those pixels are checked: the cost follows the seam, not the picture
+    public void refreshSeam(int[] seam) {
+        for (int y = 0; y < seam.length; y++) {
+            int lo = seam[y];
+            int hi = seam[y];
+            if (y > 0) {
+                lo = Math.min(lo, seam[y - 1]);
+                hi = Math.max(hi, seam[y - 1]);
+            }
+            if (y + 1 < seam.length) {
+                lo = Math.min(lo, seam[y + 1]);
+                hi = Math.max(hi, seam[y + 1]);
+            }
+
+            for (int x = Math.max(0, lo - 1); x <= Math.min(width() - 1, hi); x++) {
+                getEnergy(x, y);
+            }
+        }
+    }
 
-        if (energies[realCol][realRow] != Double.POSITIVE_INFINITY) {
-            return energies[realCol][realRow];
+    // energy of real pixel (realCol, realRow) at index, computed and stored if invalidated
+    private double energy(int realCol, int realRow, int index) {
+        if (energies[index] != Double.POSITIVE_INFINITY) {
+            return energies[index];
         }
 
         if (realCol == 0 || realCol == width - 1 || realRow == 0 || realRow == height - 1) {
-            energies[realCol][realRow] = BORDER_ENERGY;
-            return energies[realCol][realRow];
+            energies[index] = BORDER_ENERGY;
+            return energies[index];
         }
 
-        int argb1 = picture.getARGB(realCol + 1, realRow);
-        int argb2 = picture.getARGB(realCol - 1, realRow);
+        int argb1 = pixels[index + 1];
+        int argb2 = pixels[index - 1];
 
         int rx = extractR(argb1) - extractR(argb2);
         int gx = extractG(argb1) - extractG(argb2);
@@ -134,16 +286,16 @@ public class VirtualPicture {
 
         double deltaX = rx * rx + gx * gx + bx * bx;
 
-        argb1 = picture.getARGB(realCol, realRow + 1);
-        argb2 = picture.getARGB(realCol, realRow - 1);
+        argb1 = pixels[index + stride];
+        argb2 = pixels[index - stride];
 
         int ry = extractR(argb1) - extractR(argb2);
         int gy = extractG(argb1) - extractG(argb2);
         int by = extractB(argb1) - extractB(argb2);
 
         double deltaY = ry * ry + gy * gy + by * by;
-        energies[realCol][realRow] = Math.sqrt(deltaX + deltaY);
+        energies[index] = Math.sqrt(deltaX + deltaY);
 
-        return energies[realCol][realRow];
+        return energies[index];
     }
 }